@@ -0,0 +1,73 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-file base64 encoding: the original approach (file into a
+ * ByteArrayOutputStream, then encode the array) against the streaming
+ * {@link Base64Encoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class Base64Benchmark {
+
+    @Param({"65536", "4194304"})
+    public int size;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkFiles.createRandomFile(size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public String byteArrayOutputStream() throws IOException {
+        InputStream in = new FileInputStream(file);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+
+        try {
+            while ((read = in.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+
+        return Base64.getEncoder().encodeToString(output.toByteArray());
+    }
+
+    @Benchmark
+    public String streaming() throws IOException {
+        return Base64Encoder.encodeFile(file);
+    }
+
+    @Benchmark
+    public String streamingWithSha256() throws IOException {
+        return Base64Encoder.encodeFile(file, FileDigests.newDigest("SHA-256"));
+    }
+}
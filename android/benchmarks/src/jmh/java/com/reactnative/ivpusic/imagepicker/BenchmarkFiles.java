@@ -0,0 +1,32 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * @return a temp file of {@code size} random (so incompressible, like JPEG data) bytes
+     */
+    static File createRandomFile(int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+
+        File file = File.createTempFile("benchmark", ".bin");
+        file.deleteOnExit();
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+
+        return file;
+    }
+}
@@ -0,0 +1,50 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standalone file digests, as computed for {@code includeHash} when no other
+ * step reads the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DigestBenchmark {
+
+    @Param({"65536", "4194304"})
+    public int size;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkFiles.createRandomFile(size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public String sha256() throws IOException {
+        return FileDigests.toHex(FileDigests.digest(file, "SHA-256"));
+    }
+
+    @Benchmark
+    public String md5() throws IOException {
+        return FileDigests.toHex(FileDigests.digest(file, "MD5"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Document id parsing as done per selected URI: {@link DocumentIds#split}
+ * against the regex based {@code String.split(":")} it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DocumentIdBenchmark {
+
+    private final String[] documentIds = {
+            "image:48213",
+            "video:1207",
+            "primary:DCIM/Camera/IMG_20170512_101530.jpg",
+            "raw:/storage/emulated/0/Download/photo.jpg",
+            DocumentIds.MEDIA_AUTHORITY
+    };
+
+    @Benchmark
+    public void documentIdsSplit(Blackhole blackhole) {
+        for (String documentId : documentIds) {
+            blackhole.consume(DocumentIds.split(documentId));
+        }
+    }
+
+    @Benchmark
+    public void stringSplit(Blackhole blackhole) {
+        for (String documentId : documentIds) {
+            blackhole.consume(documentId.split(":"));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The copy strategies of {@link FileCopier}, as used when importing content
+ * that has no local file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileCopyBenchmark {
+
+    @Param({"65536", "4194304", "33554432"})
+    public int size;
+
+    private File source;
+    private File target;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = BenchmarkFiles.createRandomFile(size);
+        target = File.createTempFile("benchmark", ".copy");
+        target.deleteOnExit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        source.delete();
+        target.delete();
+    }
+
+    @Benchmark
+    public long streamLoop() throws IOException {
+        FileInputStream in = new FileInputStream(source);
+        FileOutputStream out = new FileOutputStream(target);
+        try {
+            return FileCopier.copyStream(in, out);
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        FileInputStream in = new FileInputStream(source);
+        FileOutputStream out = new FileOutputStream(target);
+        try {
+            return FileCopier.transfer(in.getChannel(), source.length(), out.getChannel());
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    @Benchmark
+    public long directBuffer() throws IOException {
+        FileInputStream in = new FileInputStream(source);
+        FileOutputStream out = new FileOutputStream(target);
+        try {
+            return FileCopier.copyBuffered(in.getChannel(), out.getChannel(), null);
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    @Benchmark
+    public long directBufferWithSha256() throws IOException {
+        FileInputStream in = new FileInputStream(source);
+        FileOutputStream out = new FileOutputStream(target);
+        try {
+            return FileCopier.copyBuffered(in.getChannel(), out.getChannel(), FileDigests.newDigest("SHA-256"));
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    @Benchmark
+    public long mmap() throws IOException {
+        FileInputStream in = new FileInputStream(source);
+        FileOutputStream out = new FileOutputStream(target);
+        try {
+            return FileCopier.copyMapped(in.getChannel(), source.length(), out.getChannel());
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FileUpload} against an in-process stand-in server that checks the
+ * {@code Content-MD5} of every chunk, as a multipart request and in chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UploadBenchmark {
+
+    private static final long CHUNK_SIZE = 1024 * 1024;
+
+    @Param({"65536", "4194304", "33554432"})
+    public int size;
+
+    private File file;
+    private HttpServer server;
+    private String url;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkFiles.createRandomFile(size);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload", new StandInHandler());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/upload";
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        file.delete();
+    }
+
+    @Benchmark
+    public int multipart() throws IOException {
+        return FileUpload.upload(file, new FileUpload.Options(url, null, "file", 0), new MemoryStore(), null).status;
+    }
+
+    @Benchmark
+    public int chunked() throws IOException {
+        return FileUpload.upload(file, new FileUpload.Options(url, null, "file", CHUNK_SIZE), new MemoryStore(), null).status;
+    }
+
+    private static class MemoryStore implements FileUpload.ResumeStore {
+        private final Map<String, String> values = new HashMap<>();
+
+        @Override
+        public String get(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            values.remove(key);
+        }
+    }
+
+    /**
+     * Drains the body; answers 400 on a checksum mismatch, 308 to chunks
+     * that don't end the file and 200 otherwise.
+     */
+    private static class StandInHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            MessageDigest digest = FileDigests.newDigest("MD5");
+            InputStream in = exchange.getRequestBody();
+            byte[] buffer = new byte[FileUpload.BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+
+            int status = 200;
+            String md5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+            String range = exchange.getRequestHeaders().getFirst("Content-Range");
+
+            if (md5 != null && !md5.equals(Base64Encoder.encodeToString(digest.digest()))) {
+                status = 400;
+            } else if (range != null) {
+                String[] parts = range.substring("bytes ".length()).split("[-/]");
+                if (Long.parseLong(parts[1]) + 1 < Long.parseLong(parts[2])) {
+                    status = FileUpload.STATUS_RESUME_INCOMPLETE;
+                    exchange.getResponseHeaders().set("Range", "bytes=0-" + parts[1]);
+                }
+            }
+
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        }
+    }
+}
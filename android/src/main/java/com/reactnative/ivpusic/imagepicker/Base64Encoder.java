@@ -0,0 +1,148 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+
+/**
+ * Base64 encoder (RFC 4648, no line wrapping) that streams a file through a
+ * fixed-size buffer into an output array sized up front from the file length,
+ * so the file content is never held in memory as a whole.
+ */
+final class Base64Encoder {
+
+    /**
+     * Read chunk size. A multiple of 3 so every chunk but the last one
+     * encodes without padding and chunks can be concatenated.
+     */
+    static final int CHUNK_SIZE = 3 * 8192;
+
+    static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(US_ASCII);
+
+    private Base64Encoder() {
+    }
+
+    static long encodedLength(long inputLength) {
+        return 4 * ((inputLength + 2) / 3);
+    }
+
+    /**
+     * Encodes {@code len} bytes of {@code src} starting at {@code srcOff} into
+     * {@code dst} at {@code dstOff}. Pads only if {@code len} is not a multiple of 3.
+     *
+     * @return number of bytes written to {@code dst}
+     */
+    static int encode(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        int sp = srcOff;
+        int dp = dstOff;
+        int end = srcOff + len - len % 3;
+
+        while (sp < end) {
+            int bits = (src[sp++] & 0xff) << 16 | (src[sp++] & 0xff) << 8 | (src[sp++] & 0xff);
+            dst[dp++] = ALPHABET[(bits >>> 18) & 0x3f];
+            dst[dp++] = ALPHABET[(bits >>> 12) & 0x3f];
+            dst[dp++] = ALPHABET[(bits >>> 6) & 0x3f];
+            dst[dp++] = ALPHABET[bits & 0x3f];
+        }
+
+        int remaining = srcOff + len - sp;
+        if (remaining == 1) {
+            int bits = (src[sp] & 0xff) << 16;
+            dst[dp++] = ALPHABET[(bits >>> 18) & 0x3f];
+            dst[dp++] = ALPHABET[(bits >>> 12) & 0x3f];
+            dst[dp++] = '=';
+            dst[dp++] = '=';
+        } else if (remaining == 2) {
+            int bits = (src[sp] & 0xff) << 16 | (src[sp + 1] & 0xff) << 8;
+            dst[dp++] = ALPHABET[(bits >>> 18) & 0x3f];
+            dst[dp++] = ALPHABET[(bits >>> 12) & 0x3f];
+            dst[dp++] = ALPHABET[(bits >>> 6) & 0x3f];
+            dst[dp++] = '=';
+        }
+
+        return dp - dstOff;
+    }
+
+    static String encodeToString(byte[] bytes) {
+        byte[] out = new byte[(int) encodedLength(bytes.length)];
+        int written = encode(bytes, 0, bytes.length, out, 0);
+        return new String(out, 0, written, US_ASCII);
+    }
+
+    static String encodeFile(File file) throws IOException {
+        return encodeFile(file, null);
+    }
+
+    /**
+     * @param digest Updated with every byte that is encoded, or null
+     */
+    static String encodeFile(File file, MessageDigest digest) throws IOException {
+        long length = file.length();
+        long encodedLength = encodedLength(length);
+        if (encodedLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("File is too large to encode: " + file.getPath());
+        }
+
+        byte[] out = new byte[(int) encodedLength];
+        byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE, Math.max(3, length))];
+        int written = 0;
+        long remaining = length;
+
+        InputStream in = new FileInputStream(file);
+        try {
+            // never read past the length the output was sized for, even if the file grows
+            while (remaining > 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Encoding of " + file.getPath() + " was cancelled");
+                }
+
+                int read = readFully(in, chunk, (int) Math.min(chunk.length, remaining));
+                if (read <= 0) {
+                    break;
+                }
+
+                if (digest != null) {
+                    digest.update(chunk, 0, read);
+                }
+
+                written += encode(chunk, 0, read, out, written);
+                remaining -= read;
+
+                if (read % 3 != 0) {
+                    // file ended early; the padded group must be the last one
+                    break;
+                }
+            }
+        } finally {
+            in.close();
+        }
+
+        return new String(out, 0, written, US_ASCII);
+    }
+
+    /**
+     * Reads until {@code len} bytes are in {@code buffer} or the stream ends.
+     *
+     * @return number of bytes read, or -1 if the stream was already at its end
+     */
+    static int readFully(InputStream in, byte[] buffer, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int read = in.read(buffer, total, len - total);
+            if (read == -1) {
+                return total == 0 ? -1 : total;
+            }
+
+            total += read;
+        }
+
+        return total;
+    }
+}
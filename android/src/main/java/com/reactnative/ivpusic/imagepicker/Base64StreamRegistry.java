@@ -0,0 +1,313 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers base64 data of picked files as a sequence of size-capped chunk
+ * events instead of one string in the promise result.
+ * <p>
+ * A stream stays idle until JS calls {@code startBase64Stream(id)}. From then on
+ * at most {@link #WINDOW} chunks are unacknowledged at any time; each
+ * {@code ackBase64Chunk(id, index)} lets the next chunk be read, encoded and sent.
+ */
+class Base64StreamRegistry {
+
+    static final String EVENT_CHUNK = "ImageCropPicker:base64Chunk";
+
+    static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    static final int MAX_CHUNK_SIZE = 1024 * 1024;
+    static final int WINDOW = 2;
+
+    private static final long IDLE_TIMEOUT_MS = 60 * 1000;
+    private static final String E_STREAM_FAILED = "E_STREAM_FAILED";
+
+    private final ReactApplicationContext reactContext;
+    private final ProcessingEngine engine;
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+    private final AtomicBoolean reapScheduled = new AtomicBoolean(false);
+
+    Base64StreamRegistry(ReactApplicationContext reactContext, ProcessingEngine engine) {
+        this.reactContext = reactContext;
+        this.engine = engine;
+    }
+
+    /**
+     * @param chunkSize Max number of base64 characters per chunk event.
+     * @return id of the new stream
+     */
+    String open(File file, int chunkSize) {
+        closeIdle();
+
+        int encodedChunkSize = Math.max(4, Math.min(chunkSize, MAX_CHUNK_SIZE));
+        String id = UUID.randomUUID().toString();
+        streams.put(id, new Stream(id, file, encodedChunkSize / 4 * 3));
+        scheduleReap();
+
+        return id;
+    }
+
+    boolean start(String id) {
+        Stream stream = streams.get(id);
+        if (stream == null) {
+            return false;
+        }
+
+        stream.start();
+        return true;
+    }
+
+    boolean ack(String id, int index) {
+        Stream stream = streams.get(id);
+        if (stream == null) {
+            return false;
+        }
+
+        stream.ack(index);
+        return true;
+    }
+
+    boolean cancel(String id) {
+        Stream stream = streams.remove(id);
+        if (stream == null) {
+            return false;
+        }
+
+        stream.close();
+        return true;
+    }
+
+    void closeAll() {
+        for (Stream stream : streams.values()) {
+            stream.close();
+        }
+
+        streams.clear();
+    }
+
+    /**
+     * Closes idle streams once the timeout has passed, so a stream JS never
+     * starts or stops acknowledging doesn't hold its file open until the next {@link #open}.
+     */
+    private void scheduleReap() {
+        if (!reapScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            engine.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    reapScheduled.set(false);
+                    closeIdle();
+
+                    if (!streams.isEmpty()) {
+                        scheduleReap();
+                    }
+                }
+            }, IDLE_TIMEOUT_MS);
+        } catch (RejectedExecutionException ex) {
+            // shutting down, closeAll() takes care of the streams
+            reapScheduled.set(false);
+        }
+    }
+
+    private void closeIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<Stream> it = streams.values().iterator();
+        while (it.hasNext()) {
+            Stream stream = it.next();
+            if (now - stream.lastActivity > IDLE_TIMEOUT_MS) {
+                it.remove();
+                stream.close();
+            }
+        }
+    }
+
+    private void emit(WritableMap event) {
+        if (!reactContext.hasActiveCatalystInstance()) {
+            return;
+        }
+
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(EVENT_CHUNK, event);
+    }
+
+    private class Stream implements Runnable {
+        private final String id;
+        private final File file;
+        private final int rawChunkSize;
+
+        private InputStream input;
+        private byte[] buffer;
+        private byte[] encoded;
+        private long remaining;
+
+        private int nextIndex = 0;
+        private int acked = -1;
+        private boolean started = false;
+        private boolean pumping = false;
+        private boolean finished = false;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        Stream(String id, File file, int rawChunkSize) {
+            this.id = id;
+            this.file = file;
+            this.rawChunkSize = rawChunkSize;
+        }
+
+        synchronized void start() {
+            if (started) {
+                return;
+            }
+
+            started = true;
+            lastActivity = System.currentTimeMillis();
+            schedule();
+        }
+
+        synchronized void ack(int index) {
+            if (index > acked) {
+                acked = index;
+            }
+
+            lastActivity = System.currentTimeMillis();
+            schedule();
+        }
+
+        private boolean windowFull() {
+            return nextIndex - 1 - acked >= WINDOW;
+        }
+
+        private void schedule() {
+            if (!started || pumping || finished || windowFull()) {
+                return;
+            }
+
+            pumping = true;
+            try {
+                engine.execute(this);
+            } catch (RejectedExecutionException ex) {
+                pumping = false;
+                fail(ex);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    synchronized (this) {
+                        if (finished || windowFull()) {
+                            pumping = false;
+                            return;
+                        }
+                    }
+
+                    sendNextChunk();
+                }
+            } catch (IOException ex) {
+                synchronized (this) {
+                    pumping = false;
+                }
+
+                fail(ex);
+            }
+        }
+
+        private void sendNextChunk() throws IOException {
+            InputStream in;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+
+                if (input == null) {
+                    remaining = file.length();
+                    input = new FileInputStream(file);
+                    buffer = new byte[(int) Math.min(rawChunkSize, Math.max(3, remaining))];
+                    encoded = new byte[(int) Base64Encoder.encodedLength(buffer.length)];
+                }
+
+                in = input;
+            }
+
+            int read = Base64Encoder.readFully(in, buffer, (int) Math.min(buffer.length, Math.max(remaining, 0)));
+            int length = read > 0 ? Base64Encoder.encode(buffer, 0, read, encoded, 0) : 0;
+            remaining -= Math.max(read, 0);
+            boolean last = read < buffer.length || remaining <= 0;
+
+            WritableMap event = new WritableNativeMap();
+            event.putString("streamId", id);
+            event.putInt("index", nextIndex);
+            event.putString("data", new String(encoded, 0, length, Base64Encoder.US_ASCII));
+            event.putBoolean("last", last);
+
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+
+                nextIndex++;
+                if (last) {
+                    finished = true;
+                }
+            }
+
+            emit(event);
+
+            if (last) {
+                streams.remove(id);
+                close();
+            }
+        }
+
+        private void fail(Exception ex) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+            }
+
+            streams.remove(id);
+            close();
+
+            WritableMap error = new WritableNativeMap();
+            error.putString("code", E_STREAM_FAILED);
+            error.putString("message", ex.getMessage());
+
+            WritableMap event = new WritableNativeMap();
+            event.putString("streamId", id);
+            event.putMap("error", error);
+            emit(event);
+        }
+
+        void close() {
+            InputStream toClose;
+            synchronized (this) {
+                finished = true;
+                toClose = input;
+                input = null;
+            }
+
+            if (toClose != null) {
+                try {
+                    toClose.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
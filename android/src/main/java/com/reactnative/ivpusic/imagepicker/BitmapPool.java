@@ -0,0 +1,227 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Build;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.TreeMap;
+
+/**
+ * Bounded pool of mutable bitmaps, bucketed by allocation size, that decodes
+ * reuse through {@link BitmapFactory.Options#inBitmap} instead of allocating
+ * a new bitmap per thumbnail. The least recently pooled bitmaps are recycled
+ * first when the pool is full or the system asks to trim memory.
+ * <p>
+ * Reuse across sizes and with {@code inSampleSize} needs API 19; below that
+ * the pool stays empty and bitmaps are simply recycled.
+ */
+class BitmapPool implements ComponentCallbacks2 {
+
+    static final long DEFAULT_MAX_BYTES = Math.min(16L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 16);
+
+    /**
+     * Pooled bitmaps larger than this multiple of the request are not handed out.
+     */
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    private final long maxBytes;
+    private final TreeMap<Integer, Deque<Bitmap>> buckets = new TreeMap<>();
+    private final LinkedList<Bitmap> order = new LinkedList<>();
+    private long bytes;
+    private int hits;
+    private int misses;
+
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+    }
+
+    /**
+     * Decodes {@code path} into a pooled bitmap if one is large enough. The
+     * caller hands the result back with {@link #put} once done with it.
+     *
+     * @param width  Width of the decoded bitmap, i.e. after {@code inSampleSize}
+     * @param height Height of the decoded bitmap
+     */
+    Bitmap decodeFile(String path, BitmapFactory.Options options, int width, int height) {
+        options.inMutable = true;
+        options.inBitmap = get(width, height, options.inPreferredConfig != null ? options.inPreferredConfig : Bitmap.Config.ARGB_8888);
+
+        try {
+            Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+            if (bitmap == null && options.inBitmap != null) {
+                put(options.inBitmap);
+            }
+
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            // the pooled bitmap didn't fit after all
+            if (options.inBitmap == null) {
+                throw e;
+            }
+
+            put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(path, options);
+        }
+    }
+
+    /**
+     * Like {@link #decodeFile}, for a region of an image.
+     */
+    Bitmap decodeRegion(BitmapRegionDecoder decoder, Rect region, BitmapFactory.Options options, int width, int height) {
+        options.inMutable = true;
+        options.inBitmap = get(width, height, options.inPreferredConfig != null ? options.inPreferredConfig : Bitmap.Config.ARGB_8888);
+
+        try {
+            Bitmap bitmap = decoder.decodeRegion(region, options);
+            if (bitmap == null && options.inBitmap != null) {
+                put(options.inBitmap);
+            }
+
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null) {
+                throw e;
+            }
+
+            put(options.inBitmap);
+            options.inBitmap = null;
+            return decoder.decodeRegion(region, options);
+        }
+    }
+
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        if (!isSupported() || width <= 0 || height <= 0) {
+            return null;
+        }
+
+        int needed = width * height * getBytesPerPixel(config);
+        for (Integer size = buckets.ceilingKey(needed);
+             size != null && size <= (long) needed * MAX_SIZE_MULTIPLE;
+             size = buckets.higherKey(size)) {
+            Deque<Bitmap> bucket = buckets.get(size);
+            Iterator<Bitmap> iterator = bucket.iterator();
+
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                if (bitmap.getConfig() == config) {
+                    iterator.remove();
+                    if (bucket.isEmpty()) {
+                        buckets.remove(size);
+                    }
+
+                    order.remove(bitmap);
+                    bytes -= size;
+                    hits++;
+                    return bitmap;
+                }
+            }
+        }
+
+        misses++;
+        return null;
+    }
+
+    /**
+     * Takes {@code bitmap} back for reuse, or recycles it if it can't be pooled.
+     */
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || order.contains(bitmap)) {
+            return;
+        }
+
+        if (!isSupported() || !bitmap.isMutable() || bitmap.getAllocationByteCount() > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        int size = bitmap.getAllocationByteCount();
+        Deque<Bitmap> bucket = buckets.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(size, bucket);
+        }
+
+        bucket.push(bitmap);
+        order.addLast(bitmap);
+        bytes += size;
+
+        trimTo(maxBytes);
+    }
+
+    synchronized void trimTo(long targetBytes) {
+        while (bytes > targetBytes && !order.isEmpty()) {
+            Bitmap bitmap = order.removeFirst();
+            int size = bitmap.getAllocationByteCount();
+
+            Deque<Bitmap> bucket = buckets.get(size);
+            if (bucket != null) {
+                bucket.remove(bitmap);
+                if (bucket.isEmpty()) {
+                    buckets.remove(size);
+                }
+            }
+
+            bytes -= size;
+            bitmap.recycle();
+        }
+    }
+
+    synchronized void clear() {
+        trimTo(0);
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized int getHits() {
+        return hits;
+    }
+
+    synchronized int getMisses() {
+        return misses;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(maxBytes / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+
+        if (config == Bitmap.Config.RGB_565) {
+            return 2;
+        }
+
+        return 4;
+    }
+}
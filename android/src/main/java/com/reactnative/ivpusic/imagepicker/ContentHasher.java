@@ -0,0 +1,50 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+
+/**
+ * Content digests of selected files. Steps that read a file anyway (base64
+ * encoding, importing) feed a digest on the way and hand it in with
+ * {@link #put}, so {@link #get} only reads a file itself when nothing else did.
+ * Entries are keyed by path, modification time and length.
+ */
+class ContentHasher {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final LruCache<String, String> cache;
+
+    ContentHasher(int capacity) {
+        this.cache = new LruCache<>(capacity);
+    }
+
+    /**
+     * Remembers the digest of {@code file}'s current content, computed by the caller.
+     */
+    void put(File file, String algorithm, MessageDigest digest) {
+        cache.put(key(file, algorithm), FileDigests.toHex(digest.digest()));
+    }
+
+    /**
+     * @return hex encoded digest, read from the cache or else from the file
+     */
+    String get(File file, String algorithm) throws IOException {
+        String key = key(file, algorithm);
+        String hash = cache.get(key);
+        if (hash != null) {
+            return hash;
+        }
+
+        hash = FileDigests.toHex(FileDigests.digest(file, algorithm));
+        cache.put(key, hash);
+        return hash;
+    }
+
+    private static String key(File file, String algorithm) {
+        return algorithm + "|" + file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length();
+    }
+}
@@ -0,0 +1,36 @@
+package com.reactnative.ivpusic.imagepicker;
+
+/**
+ * Parsing of DocumentsProvider authorities and document ids, kept free of
+ * Android types so it can be benchmarked on the JVM.
+ */
+final class DocumentIds {
+
+    static final String EXTERNAL_STORAGE_AUTHORITY = "com.android.externalstorage.documents";
+    static final String DOWNLOADS_AUTHORITY = "com.android.providers.downloads.documents";
+    static final String MEDIA_AUTHORITY = "com.android.providers.media.documents";
+    static final String GOOGLE_PHOTOS_AUTHORITY = "com.google.android.apps.photos.content";
+
+    private DocumentIds() {
+    }
+
+    /**
+     * Splits a {@code type:id} document id, e.g. {@code image:42} or
+     * {@code primary:DCIM/a.jpg}. Only the first colon separates, so ids
+     * that contain colons stay whole.
+     *
+     * @return type and id, or null if {@code documentId} has no type
+     */
+    static String[] split(String documentId) {
+        if (documentId == null) {
+            return null;
+        }
+
+        int colon = documentId.indexOf(':');
+        if (colon < 0) {
+            return null;
+        }
+
+        return new String[]{documentId.substring(0, colon), documentId.substring(colon + 1)};
+    }
+}
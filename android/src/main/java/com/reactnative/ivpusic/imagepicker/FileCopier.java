@@ -0,0 +1,123 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+
+/**
+ * File copy strategies, free of Android types so they can be benchmarked on
+ * the JVM. {@link #copy} picks the one the import path uses.
+ */
+final class FileCopier {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Size of the regions mapped at once by {@link #copyMapped}.
+     */
+    static final long MAP_REGION_SIZE = 8L * 1024 * 1024;
+
+    private FileCopier() {
+    }
+
+    /**
+     * Copies channel to channel without byte array loops: {@code transferTo}
+     * when the size is known and nothing needs to see the bytes, a direct
+     * buffer otherwise.
+     *
+     * @param size   Source size, or a negative value for pipes and sockets
+     * @param digest Updated with every copied byte, or null
+     * @return number of bytes copied
+     */
+    static long copy(FileChannel source, long size, FileChannel target, MessageDigest digest) throws IOException {
+        if (size >= 0 && digest == null) {
+            return transfer(source, size, target);
+        }
+
+        return copyBuffered(source, target, digest);
+    }
+
+    static long transfer(FileChannel source, long size, FileChannel target) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long transferred = source.transferTo(position, size - position, target);
+            if (transferred <= 0) {
+                break;
+            }
+
+            position += transferred;
+        }
+
+        return position;
+    }
+
+    /**
+     * @param digest Updated with every copied byte, or null
+     */
+    static long copyBuffered(ReadableByteChannel source, WritableByteChannel target, MessageDigest digest)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long copied = 0;
+
+        while (source.read(buffer) != -1) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Copy was cancelled");
+            }
+
+            buffer.flip();
+            if (digest != null) {
+                buffer.mark();
+                digest.update(buffer);
+                buffer.reset();
+            }
+
+            while (buffer.hasRemaining()) {
+                copied += target.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        return copied;
+    }
+
+    /**
+     * Plain stream loop through a heap array.
+     */
+    static long copyStream(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long copied = 0;
+        int read;
+
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+
+        return copied;
+    }
+
+    /**
+     * Maps the source region by region and writes the mapped buffers.
+     */
+    static long copyMapped(FileChannel source, long size, FileChannel target) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long length = Math.min(MAP_REGION_SIZE, size - position);
+            MappedByteBuffer region = source.map(FileChannel.MapMode.READ_ONLY, position, length);
+            while (region.hasRemaining()) {
+                target.write(region);
+            }
+
+            position += length;
+        }
+
+        return position;
+    }
+}
@@ -0,0 +1,86 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content digest helpers, free of Android types so they can be benchmarked
+ * on the JVM. Caching lives in {@link ContentHasher}.
+ */
+final class FileDigests {
+
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private FileDigests() {
+    }
+
+    /**
+     * @param name Option value, {@code sha256} or {@code md5}
+     * @return the matching {@link MessageDigest} algorithm, or null if there is none
+     */
+    static String algorithmFor(String name) {
+        if ("sha256".equals(name)) {
+            return "SHA-256";
+        }
+
+        if ("md5".equals(name)) {
+            return "MD5";
+        }
+
+        return null;
+    }
+
+    static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // both algorithms are guaranteed on every Android version
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads {@code file} through a direct buffer.
+     *
+     * @return raw digest bytes
+     */
+    static byte[] digest(File file, String algorithm) throws IOException {
+        MessageDigest digest = newDigest(algorithm);
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Hashing of " + file.getPath() + " was cancelled");
+                }
+
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            in.close();
+        }
+
+        return digest.digest();
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+
+        return new String(chars);
+    }
+}
@@ -0,0 +1,366 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streams one file to an HTTP endpoint, straight from disk. Free of Android
+ * types so it can be run on the JVM against a local stand-in server.
+ * <p>
+ * Files up to {@code chunkSize} (or all files, if it is 0) are sent as one
+ * {@code multipart/form-data} POST. Larger files are sent as a series of raw
+ * POSTs of at most {@code chunkSize} bytes, each with
+ * {@code Content-Range: bytes <first>-<last>/<total>}, the {@code X-Upload-Id}
+ * shared by all chunks of the file and a {@code Content-MD5} of the chunk.
+ * The server answers intermediate chunks with 2xx or 308, optionally with
+ * {@code Range: bytes=0-<last>} naming what it has stored so far. The offset
+ * after every chunk is kept in a {@link ResumeStore}, so an interrupted
+ * upload of the same file continues where it stopped.
+ */
+final class FileUpload {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int STATUS_RESUME_INCOMPLETE = 308;
+
+    private static final int CONNECT_TIMEOUT_MS = 15 * 1000;
+    private static final int READ_TIMEOUT_MS = 60 * 1000;
+    private static final String CRLF = "\r\n";
+
+    interface ProgressListener {
+        void onProgress(long bytesSent, long totalBytes);
+    }
+
+    /**
+     * Offsets of interrupted chunked uploads, e.g. in SharedPreferences.
+     */
+    interface ResumeStore {
+        /**
+         * @return value last put for {@code key}, or null
+         */
+        String get(String key);
+
+        void put(String key, String value);
+
+        void remove(String key);
+    }
+
+    static class Options {
+        final String url;
+        final Map<String, String> headers;
+        final String fieldName;
+        /**
+         * Bytes per chunked request, 0 to always send one multipart request
+         */
+        final long chunkSize;
+
+        Options(String url, Map<String, String> headers, String fieldName, long chunkSize) {
+            this.url = url;
+            this.headers = headers;
+            this.fieldName = fieldName;
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private FileUpload() {
+    }
+
+    /**
+     * Blocks until the file is uploaded. Interrupting the calling thread
+     * aborts at the next buffer with an {@link InterruptedIOException}.
+     *
+     * @throws IOException on network errors and non-2xx responses; a chunked upload can be resumed then
+     */
+    static Response upload(File file, Options options, ResumeStore store, ProgressListener listener) throws IOException {
+        long length = file.length();
+        if (options.chunkSize <= 0 || length <= options.chunkSize) {
+            return uploadMultipart(file, length, options, listener);
+        }
+
+        return uploadChunked(file, length, options, store, listener);
+    }
+
+    static Response uploadMultipart(File file, long length, Options options, ProgressListener listener)
+            throws IOException {
+        String boundary = "----ImageCropPicker" + UUID.randomUUID().toString().replace("-", "");
+        byte[] head = ("--" + boundary + CRLF
+                + "Content-Disposition: form-data; name=\"" + escape(options.fieldName)
+                + "\"; filename=\"" + escape(file.getName()) + "\"" + CRLF
+                + "Content-Type: " + getMimeType(file) + CRLF + CRLF).getBytes("UTF-8");
+        byte[] tail = (CRLF + "--" + boundary + "--" + CRLF).getBytes("UTF-8");
+
+        HttpURLConnection connection = open(options, "multipart/form-data; boundary=" + boundary,
+                head.length + length + tail.length);
+        try {
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(head);
+                send(file, 0, length, out, length, 0, listener);
+                out.write(tail);
+            } finally {
+                out.close();
+            }
+
+            Response response = readResponse(connection);
+            if (!isSuccess(response.status)) {
+                throw new IOException("Upload failed with HTTP " + response.status);
+            }
+
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    static Response uploadChunked(File file, long length, Options options, ResumeStore store,
+                                  ProgressListener listener) throws IOException {
+        String key = resumeKey(file, options);
+        String uploadId = null;
+        long offset = 0;
+
+        String saved = store.get(key);
+        int colon = saved == null ? -1 : saved.lastIndexOf(':');
+        if (colon > 0) {
+            try {
+                offset = Long.parseLong(saved.substring(colon + 1));
+                uploadId = saved.substring(0, colon);
+            } catch (NumberFormatException e) {
+                offset = 0;
+            }
+        }
+
+        if (uploadId == null || offset < 0 || offset >= length) {
+            uploadId = UUID.randomUUID().toString();
+            offset = 0;
+        }
+
+        while (true) {
+            long end = Math.min(length, offset + options.chunkSize);
+            HttpURLConnection connection = open(options, "application/octet-stream", end - offset);
+            connection.setRequestProperty("X-Upload-Id", uploadId);
+            connection.setRequestProperty("X-Upload-Name", file.getName());
+            connection.setRequestProperty("Content-Range", "bytes " + offset + "-" + (end - 1) + "/" + length);
+            connection.setRequestProperty("Content-MD5", Base64Encoder.encodeToString(md5(file, offset, end)));
+
+            Response response;
+            String range;
+            try {
+                OutputStream out = connection.getOutputStream();
+                try {
+                    send(file, offset, end, out, length, offset, listener);
+                } finally {
+                    out.close();
+                }
+
+                response = readResponse(connection);
+                range = connection.getHeaderField("Range");
+            } finally {
+                connection.disconnect();
+            }
+
+            if (end == length && isSuccess(response.status)) {
+                store.remove(key);
+                return response;
+            }
+
+            if (!isSuccess(response.status) && response.status != STATUS_RESUME_INCOMPLETE) {
+                throw new IOException("Upload of bytes " + offset + "-" + (end - 1) + " failed with HTTP " + response.status);
+            }
+
+            // the server may have kept less than was sent
+            long committed = Math.min(end, getCommittedEnd(range, end));
+            if (committed == length) {
+                // some servers answer the last chunk with 308 and a Range covering the whole file
+                store.remove(key);
+                return response;
+            }
+
+            if (committed <= offset) {
+                throw new IOException("Server did not accept bytes " + offset + "-" + (end - 1));
+            }
+
+            offset = committed;
+            store.put(key, uploadId + ":" + offset);
+        }
+    }
+
+    private static HttpURLConnection open(Options options, String contentType, long contentLength) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(options.url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setUseCaches(false);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+
+        // stream the body instead of buffering it to compute a length
+        if (contentLength <= Integer.MAX_VALUE) {
+            connection.setFixedLengthStreamingMode((int) contentLength);
+        } else {
+            connection.setChunkedStreamingMode(BUFFER_SIZE);
+        }
+
+        if (options.headers != null) {
+            for (Map.Entry<String, String> header : options.headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        connection.setRequestProperty("Content-Type", contentType);
+
+        return connection;
+    }
+
+    /**
+     * Writes bytes {@code start} to {@code end} of {@code file} to {@code out}.
+     *
+     * @param sentBefore Bytes of the file already sent by earlier requests, for progress
+     */
+    private static void send(File file, long start, long end, OutputStream out, long total, long sentBefore,
+                             ProgressListener listener) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            channel.position(start);
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            long position = start;
+
+            while (position < end) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Upload cancelled");
+                }
+
+                wrapped.clear();
+                wrapped.limit((int) Math.min(BUFFER_SIZE, end - position));
+                int read = channel.read(wrapped);
+                if (read < 0) {
+                    throw new IOException(file + " got shorter while uploading");
+                }
+
+                out.write(buffer, 0, read);
+                position += read;
+
+                if (listener != null) {
+                    listener.onProgress(sentBefore + position - start, total);
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return MD5 of bytes {@code start} to {@code end} of {@code file}
+     */
+    static byte[] md5(File file, long start, long end) throws IOException {
+        MessageDigest digest = FileDigests.newDigest("MD5");
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long position = start;
+
+            while (position < end) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Upload cancelled");
+                }
+
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException(file + " got shorter while uploading");
+                }
+
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+            }
+        } finally {
+            in.close();
+        }
+
+        return digest.digest();
+    }
+
+    private static Response readResponse(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) {
+            return new Response(status, null);
+        }
+
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+
+            return new Response(status, body.toString("UTF-8"));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return offset after the last byte named by a {@code Range: bytes=0-<last>} header, or {@code fallback}
+     */
+    static long getCommittedEnd(String range, long fallback) {
+        if (range == null || !range.startsWith("bytes=")) {
+            return fallback;
+        }
+
+        int dash = range.indexOf('-');
+        if (dash < 0) {
+            return fallback;
+        }
+
+        try {
+            return Long.parseLong(range.substring(dash + 1).trim()) + 1;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static boolean isSuccess(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    private static String resumeKey(File file, Options options) {
+        return options.url + "|" + file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length()
+                + "|" + options.chunkSize;
+    }
+
+    private static String getMimeType(File file) {
+        String mime = URLConnection.guessContentTypeFromName(file.getName());
+        return mime != null ? mime : "application/octet-stream";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\"", "%22").replace("\r", "").replace("\n", "");
+    }
+}
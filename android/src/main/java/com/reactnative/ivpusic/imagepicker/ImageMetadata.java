@@ -0,0 +1,301 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.media.ExifInterface;
+import android.os.Build;
+import android.util.Log;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * EXIF properties of an image, read in one pass over the file's header
+ * segments without decoding any pixels.
+ */
+class ImageMetadata {
+
+    private static final String TAG = "ImageCropPicker";
+
+    // Build.VERSION_CODES.N, newer than the SDK we compile against
+    private static final int N = 24;
+
+    private static final Constructor<ExifInterface> FROM_DESCRIPTOR = findDescriptorConstructor();
+
+    /**
+     * Tags carried over to a copy of the image, see {@link #writeUpright}.
+     */
+    private static final String[] COPIED_TAGS = {
+            ExifInterface.TAG_DATETIME,
+            ExifInterface.TAG_MAKE,
+            ExifInterface.TAG_MODEL,
+            ExifInterface.TAG_GPS_LATITUDE,
+            ExifInterface.TAG_GPS_LATITUDE_REF,
+            ExifInterface.TAG_GPS_LONGITUDE,
+            ExifInterface.TAG_GPS_LONGITUDE_REF,
+            ExifInterface.TAG_GPS_ALTITUDE,
+            ExifInterface.TAG_GPS_ALTITUDE_REF
+    };
+
+    static final ImageMetadata NONE = new ImageMetadata(ExifInterface.ORIENTATION_NORMAL, null, null, null, null, null,
+            new String[COPIED_TAGS.length]);
+
+    final int orientation;
+    final String dateTime;
+    final float[] latLong;
+    final Double altitude;
+    final String make;
+    final String model;
+    private final String[] copiedValues;
+
+    private ImageMetadata(int orientation, String dateTime, float[] latLong, Double altitude, String make, String model,
+                          String[] copiedValues) {
+        this.orientation = orientation;
+        this.dateTime = dateTime;
+        this.latLong = latLong;
+        this.altitude = altitude;
+        this.make = make;
+        this.model = model;
+        this.copiedValues = copiedValues;
+    }
+
+    /**
+     * @return {@link #NONE} if the file has no readable EXIF data
+     */
+    static ImageMetadata read(String path) {
+        ExifInterface exif;
+        try {
+            exif = new ExifInterface(path);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Cannot read EXIF data of " + path, e);
+            return NONE;
+        }
+
+        return read(exif);
+    }
+
+    /**
+     * Like {@link #read(String)}, from the start of a file that is already
+     * open, e.g. for a bounds decode, so it isn't opened again. Before API 24
+     * EXIF data can only be read by path.
+     *
+     * @param fd   Seekable descriptor of the file at {@code path}
+     * @param path Only opened before API 24
+     */
+    static ImageMetadata read(FileDescriptor fd, String path) {
+        if (FROM_DESCRIPTOR == null) {
+            return read(path);
+        }
+
+        ExifInterface exif;
+        try {
+            exif = FROM_DESCRIPTOR.newInstance(fd);
+        } catch (InvocationTargetException e) {
+            Log.w(TAG, "Cannot read EXIF data of " + path, e.getCause());
+            return NONE;
+        } catch (InstantiationException | IllegalAccessException e) {
+            return read(path);
+        }
+
+        return read(exif);
+    }
+
+    private static ImageMetadata read(ExifInterface exif) {
+        float[] latLong = new float[2];
+        double altitude = exif.getAltitude(Double.NaN);
+
+        String[] copiedValues = new String[COPIED_TAGS.length];
+        for (int i = 0; i < COPIED_TAGS.length; i++) {
+            copiedValues[i] = exif.getAttribute(COPIED_TAGS[i]);
+        }
+
+        return new ImageMetadata(
+                exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL),
+                exif.getAttribute(ExifInterface.TAG_DATETIME),
+                exif.getLatLong(latLong) ? latLong : null,
+                Double.isNaN(altitude) ? null : altitude,
+                exif.getAttribute(ExifInterface.TAG_MAKE),
+                exif.getAttribute(ExifInterface.TAG_MODEL),
+                copiedValues);
+    }
+
+    private static Constructor<ExifInterface> findDescriptorConstructor() {
+        if (Build.VERSION.SDK_INT < N) {
+            return null;
+        }
+
+        try {
+            return ExifInterface.class.getConstructor(FileDescriptor.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the EXIF data of an upright copy of the image to {@code path}:
+     * the same tags with a normal orientation.
+     *
+     * @return metadata of the copy
+     */
+    ImageMetadata writeUpright(String path) throws IOException {
+        ExifInterface exif = new ExifInterface(path);
+        for (int i = 0; i < COPIED_TAGS.length; i++) {
+            if (copiedValues[i] != null) {
+                exif.setAttribute(COPIED_TAGS[i], copiedValues[i]);
+            }
+        }
+
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(ExifInterface.ORIENTATION_NORMAL));
+        exif.saveAttributes();
+
+        return upright();
+    }
+
+    /**
+     * @return the same metadata with a normal orientation
+     */
+    ImageMetadata upright() {
+        return new ImageMetadata(ExifInterface.ORIENTATION_NORMAL, dateTime, latLong, altitude, make, model, copiedValues);
+    }
+
+    /**
+     * @return whether width and height are swapped when the image is displayed
+     */
+    boolean isTransposed() {
+        return isTransposed(orientation);
+    }
+
+    static boolean isTransposed(int orientation) {
+        return orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270;
+    }
+
+    boolean isUpright() {
+        return isUpright(orientation);
+    }
+
+    static boolean isUpright(int orientation) {
+        return orientation == ExifInterface.ORIENTATION_NORMAL || orientation == ExifInterface.ORIENTATION_UNDEFINED;
+    }
+
+    /**
+     * @return transformation that turns the stored pixels upright
+     */
+    Matrix getUprightMatrix() {
+        return getUprightMatrix(orientation);
+    }
+
+    static Matrix getUprightMatrix(int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+        }
+
+        return matrix;
+    }
+
+    /**
+     * Maps a rectangle of the displayed image to the stored pixels it shows,
+     * i.e. undoes {@link #getUprightMatrix()}.
+     *
+     * @param storedWidth  Width of the stored pixels
+     * @param storedHeight Height of the stored pixels
+     */
+    Rect getStoredRect(int x, int y, int width, int height, int storedWidth, int storedHeight) {
+        int w = storedWidth;
+        int h = storedHeight;
+
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                return new Rect(w - x - width, y, w - x, y + height);
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                return new Rect(w - x - width, h - y - height, w - x, h - y);
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                return new Rect(x, h - y - height, x + width, h - y);
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                return new Rect(y, x, y + height, x + width);
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                return new Rect(y, h - x - width, y + height, h - x);
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                return new Rect(w - y - height, h - x - width, w - y, h - x);
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                return new Rect(w - y - height, x, w - y, x + width);
+            default:
+                return new Rect(x, y, x + width, y + height);
+        }
+    }
+
+    /**
+     * @return EXIF orientation for a rotation from MediaStore's {@code orientation}
+     * column, which knows no flips
+     */
+    static int fromDegrees(int degrees) {
+        switch (degrees) {
+            case 90:
+                return ExifInterface.ORIENTATION_ROTATE_90;
+            case 180:
+                return ExifInterface.ORIENTATION_ROTATE_180;
+            case 270:
+                return ExifInterface.ORIENTATION_ROTATE_270;
+            default:
+                return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    WritableMap toMap() {
+        WritableMap map = new WritableNativeMap();
+        map.putInt("orientation", orientation);
+
+        if (dateTime != null) {
+            map.putString("dateTime", dateTime);
+        }
+
+        if (latLong != null) {
+            map.putDouble("latitude", latLong[0]);
+            map.putDouble("longitude", latLong[1]);
+        }
+
+        if (altitude != null) {
+            map.putDouble("altitude", altitude);
+        }
+
+        if (make != null) {
+            map.putString("make", make);
+        }
+
+        if (model != null) {
+            map.putString("model", model);
+        }
+
+        return map;
+    }
+}
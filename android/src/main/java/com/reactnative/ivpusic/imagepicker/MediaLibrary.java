@@ -0,0 +1,307 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pages through the device's images and videos in MediaStore for an in-app
+ * gallery. Pages are keyset paginated on {@code (date_added, _id)}: the
+ * cursor of a page is the key of its last item, and the next query continues
+ * strictly after it, so no page re-reads earlier rows the way an OFFSET would,
+ * and items added meanwhile don't shift later pages.
+ */
+final class MediaLibrary {
+
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 500;
+
+    // Build.VERSION_CODES.R, which no longer accepts LIMIT in the sort order
+    private static final int R = 30;
+
+    // ContentResolver query arguments (API 26), newer than the SDK we compile against
+    private static final String QUERY_ARG_SQL_SELECTION = "android:query-arg-sql-selection";
+    private static final String QUERY_ARG_SQL_SELECTION_ARGS = "android:query-arg-sql-selection-args";
+    private static final String QUERY_ARG_SQL_SORT_ORDER = "android:query-arg-sql-sort-order";
+    private static final String QUERY_ARG_LIMIT = "android:query-arg-limit";
+
+    private static final Method QUERY_WITH_ARGS = findQueryWithArgsMethod();
+
+    private static final String[] PROJECTION = {
+            MediaStore.Files.FileColumns._ID,
+            MediaStore.Files.FileColumns.MEDIA_TYPE,
+            MediaStore.Files.FileColumns.DATA,
+            MediaStore.Files.FileColumns.MIME_TYPE,
+            MediaStore.Files.FileColumns.SIZE,
+            MediaStore.Files.FileColumns.WIDTH,
+            MediaStore.Files.FileColumns.HEIGHT,
+            MediaStore.Images.ImageColumns.ORIENTATION,
+            MediaStore.Files.FileColumns.DATE_ADDED
+    };
+
+    static class Query {
+        final int[] mediaTypes;
+        final boolean newestFirst;
+        final int limit;
+        final List<String> mimeTypes;
+        /**
+         * Seconds, like {@code date_added}; 0 for no lower bound
+         */
+        final long minDateAdded;
+        /**
+         * Key of the last item of the previous page, or null for the first page
+         */
+        final long[] after;
+
+        /**
+         * @throws IllegalArgumentException if an option has an unsupported value
+         */
+        Query(ReadableMap options) {
+            String mediaType = options.hasKey("mediaType") ? options.getString("mediaType") : "photo";
+            if ("photo".equals(mediaType)) {
+                mediaTypes = new int[]{MediaStore.Files.FileColumns.MEDIA_TYPE_IMAGE};
+            } else if ("video".equals(mediaType)) {
+                mediaTypes = new int[]{MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO};
+            } else if ("any".equals(mediaType)) {
+                mediaTypes = new int[]{MediaStore.Files.FileColumns.MEDIA_TYPE_IMAGE,
+                        MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO};
+            } else {
+                throw new IllegalArgumentException("Unsupported mediaType value: " + mediaType);
+            }
+
+            String sort = options.hasKey("sort") ? options.getString("sort") : "newest";
+            if (!"newest".equals(sort) && !"oldest".equals(sort)) {
+                throw new IllegalArgumentException("Unsupported sort value: " + sort);
+            }
+            newestFirst = "newest".equals(sort);
+
+            limit = options.hasKey("limit") ? options.getInt("limit") : DEFAULT_LIMIT;
+            if (limit <= 0 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+            }
+
+            mimeTypes = new ArrayList<>();
+            if (options.hasKey("mimeTypes")) {
+                ReadableArray types = options.getArray("mimeTypes");
+                for (int i = 0; i < types.size(); i++) {
+                    mimeTypes.add(types.getString(i));
+                }
+            }
+
+            minDateAdded = options.hasKey("minDate") ? (long) options.getDouble("minDate") / 1000 : 0;
+            after = options.hasKey("after") && options.getString("after") != null
+                    ? parseCursor(options.getString("after")) : null;
+        }
+    }
+
+    static class Item {
+        final long id;
+        final Uri uri;
+        final String path;
+        final String mime;
+        final boolean video;
+        final long size;
+        final int width;
+        final int height;
+        /**
+         * Clockwise rotation in degrees, as stored (not displayed) pixels are turned
+         */
+        final int orientation;
+        final long dateAdded;
+
+        Item(long id, Uri uri, String path, String mime, boolean video, long size, int width, int height,
+             int orientation, long dateAdded) {
+            this.id = id;
+            this.uri = uri;
+            this.path = path;
+            this.mime = mime;
+            this.video = video;
+            this.size = size;
+            this.width = width;
+            this.height = height;
+            this.orientation = orientation;
+            this.dateAdded = dateAdded;
+        }
+    }
+
+    static class Page {
+        final List<Item> items;
+        /**
+         * Pass as {@code after} for the next page; null on the last page
+         */
+        final String next;
+
+        Page(List<Item> items, String next) {
+            this.items = items;
+            this.next = next;
+        }
+    }
+
+    private MediaLibrary() {
+    }
+
+    static Page query(ContentResolver resolver, Query query) {
+        List<String> args = new ArrayList<>();
+        StringBuilder selection = new StringBuilder(MediaStore.Files.FileColumns.MEDIA_TYPE).append(" IN (");
+        for (int i = 0; i < query.mediaTypes.length; i++) {
+            selection.append(i == 0 ? "?" : ",?");
+            args.add(String.valueOf(query.mediaTypes[i]));
+        }
+        selection.append(")");
+
+        if (!query.mimeTypes.isEmpty()) {
+            selection.append(" AND ").append(MediaStore.Files.FileColumns.MIME_TYPE).append(" IN (");
+            for (int i = 0; i < query.mimeTypes.size(); i++) {
+                selection.append(i == 0 ? "?" : ",?");
+                args.add(query.mimeTypes.get(i));
+            }
+            selection.append(")");
+        }
+
+        if (query.minDateAdded > 0) {
+            selection.append(" AND ").append(MediaStore.Files.FileColumns.DATE_ADDED).append(" >= ?");
+            args.add(String.valueOf(query.minDateAdded));
+        }
+
+        String direction = query.newestFirst ? "DESC" : "ASC";
+        if (query.after != null) {
+            String comparison = query.newestFirst ? " < ?" : " > ?";
+            selection.append(" AND (").append(MediaStore.Files.FileColumns.DATE_ADDED).append(comparison)
+                    .append(" OR (").append(MediaStore.Files.FileColumns.DATE_ADDED).append(" = ? AND ")
+                    .append(MediaStore.Files.FileColumns._ID).append(comparison).append("))");
+            args.add(String.valueOf(query.after[0]));
+            args.add(String.valueOf(query.after[0]));
+            args.add(String.valueOf(query.after[1]));
+        }
+
+        // one extra row tells whether there is a next page
+        String sortOrder = MediaStore.Files.FileColumns.DATE_ADDED + " " + direction + ", "
+                + MediaStore.Files.FileColumns._ID + " " + direction;
+
+        List<Item> items = new ArrayList<>(query.limit);
+        boolean hasMore = false;
+
+        Cursor cursor = query(resolver, selection.toString(), args.toArray(new String[args.size()]), sortOrder,
+                query.limit + 1);
+        if (cursor == null) {
+            return new Page(items, null);
+        }
+
+        try {
+            int idIndex = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns._ID);
+            int typeIndex = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.MEDIA_TYPE);
+            int dataIndex = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DATA);
+            int mimeIndex = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.MIME_TYPE);
+            int sizeIndex = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.SIZE);
+            int widthIndex = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.WIDTH);
+            int heightIndex = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.HEIGHT);
+            int orientationIndex = cursor.getColumnIndex(MediaStore.Images.ImageColumns.ORIENTATION);
+            int dateIndex = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DATE_ADDED);
+
+            while (cursor.moveToNext()) {
+                if (items.size() == query.limit) {
+                    hasMore = true;
+                    break;
+                }
+
+                long id = cursor.getLong(idIndex);
+                boolean video = cursor.getInt(typeIndex) == MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO;
+                Uri uri = ContentUris.withAppendedId(video
+                        ? MediaStore.Video.Media.EXTERNAL_CONTENT_URI
+                        : MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id);
+
+                items.add(new Item(id, uri,
+                        cursor.getString(dataIndex),
+                        cursor.getString(mimeIndex),
+                        video,
+                        cursor.isNull(sizeIndex) ? 0 : cursor.getLong(sizeIndex),
+                        cursor.isNull(widthIndex) ? 0 : cursor.getInt(widthIndex),
+                        cursor.isNull(heightIndex) ? 0 : cursor.getInt(heightIndex),
+                        orientationIndex < 0 || cursor.isNull(orientationIndex) ? 0 : cursor.getInt(orientationIndex),
+                        cursor.getLong(dateIndex)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        String next = null;
+        if (hasMore) {
+            Item last = items.get(items.size() - 1);
+            next = last.dateAdded + ":" + last.id;
+        }
+
+        return new Page(items, next);
+    }
+
+    /**
+     * Queries at most {@code limit} rows, in the sort order on older versions
+     * and as a query argument on R+, so the provider stops after them either way.
+     */
+    private static Cursor query(ContentResolver resolver, String selection, String[] selectionArgs, String sortOrder,
+                                int limit) {
+        Uri uri = MediaStore.Files.getContentUri("external");
+        if (Build.VERSION.SDK_INT < R) {
+            return resolver.query(uri, PROJECTION, selection, selectionArgs, sortOrder + " LIMIT " + limit);
+        }
+
+        if (QUERY_WITH_ARGS != null) {
+            Bundle queryArgs = new Bundle();
+            queryArgs.putString(QUERY_ARG_SQL_SELECTION, selection);
+            queryArgs.putStringArray(QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs);
+            queryArgs.putString(QUERY_ARG_SQL_SORT_ORDER, sortOrder);
+            queryArgs.putInt(QUERY_ARG_LIMIT, limit);
+
+            try {
+                return (Cursor) QUERY_WITH_ARGS.invoke(resolver, uri, PROJECTION, queryArgs, null);
+            } catch (IllegalAccessException e) {
+                // fall through to the unlimited query
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+            }
+        }
+
+        // the cursor is still only read up to the limit
+        return resolver.query(uri, PROJECTION, selection, selectionArgs, sortOrder);
+    }
+
+    private static Method findQueryWithArgsMethod() {
+        if (Build.VERSION.SDK_INT < R) {
+            return null;
+        }
+
+        try {
+            return ContentResolver.class.getMethod("query",
+                    Uri.class, String[].class, Bundle.class, CancellationSignal.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static long[] parseCursor(String cursor) {
+        int colon = cursor.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Invalid after value: " + cursor);
+        }
+
+        try {
+            return new long[]{Long.parseLong(cursor.substring(0, colon)), Long.parseLong(cursor.substring(colon + 1))};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid after value: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves MediaProvider document URIs of a multiple selection with one
+ * {@code _id IN (...)} query per media type, instead of one query per URI.
+ * Path, size, mime type and dimensions come back from the same query.
+ * URIs of other providers are left to the per-URI {@link RealPathUtil} path.
+ */
+final class MediaStoreBatchResolver {
+
+    /**
+     * Stays below SQLite's default limit of 999 bound arguments.
+     */
+    static final int MAX_BATCH = 500;
+
+    private static final String TAG = "ImageCropPicker";
+
+    private static final String[] IMAGE_PROJECTION = {
+            MediaStore.MediaColumns._ID,
+            MediaStore.MediaColumns.DATA,
+            MediaStore.MediaColumns.SIZE,
+            MediaStore.MediaColumns.MIME_TYPE,
+            MediaStore.MediaColumns.WIDTH,
+            MediaStore.MediaColumns.HEIGHT,
+            MediaStore.MediaColumns.DATE_MODIFIED,
+            MediaStore.Images.ImageColumns.ORIENTATION
+    };
+
+    private static final String[] VIDEO_PROJECTION = {
+            MediaStore.MediaColumns._ID,
+            MediaStore.MediaColumns.DATA,
+            MediaStore.MediaColumns.SIZE,
+            MediaStore.MediaColumns.MIME_TYPE,
+            MediaStore.MediaColumns.WIDTH,
+            MediaStore.MediaColumns.HEIGHT,
+            MediaStore.MediaColumns.DATE_MODIFIED
+    };
+
+    private static final String[] AUDIO_PROJECTION = {
+            MediaStore.MediaColumns._ID,
+            MediaStore.MediaColumns.DATA,
+            MediaStore.MediaColumns.SIZE,
+            MediaStore.MediaColumns.MIME_TYPE
+    };
+
+    static class MediaInfo {
+        final String path;
+        final long size;
+        final String mime;
+        final int width;
+        final int height;
+        /**
+         * Seconds, or 0 if unknown
+         */
+        final long dateModified;
+        /**
+         * Clockwise rotation in degrees, as stored (not displayed) pixels are turned.
+         */
+        final int orientation;
+
+        MediaInfo(String path, long size, String mime, int width, int height, long dateModified, int orientation) {
+            this.path = path;
+            this.size = size;
+            this.mime = mime;
+            this.width = width;
+            this.height = height;
+            this.dateModified = dateModified;
+            this.orientation = orientation;
+        }
+
+        boolean hasImageSize() {
+            return mime != null && width > 0 && height > 0;
+        }
+
+        /**
+         * Rows of files that were just written, or changed since they were
+         * scanned, can be stale; their values are only trusted if size and
+         * modification time still match the file.
+         */
+        boolean isCurrent(File file) {
+            return size > 0 && dateModified > 0
+                    && size == file.length() && dateModified == file.lastModified() / 1000;
+        }
+    }
+
+    private MediaStoreBatchResolver() {
+    }
+
+    /**
+     * @return info for every URI the batch queries found; other URIs are missing from the map
+     */
+    static Map<Uri, MediaInfo> resolve(Context context, List<Uri> uris) {
+        Map<Uri, MediaInfo> result = new HashMap<>();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return result;
+        }
+
+        // type -> document id -> uris (the same item may be selected twice)
+        Map<String, Map<String, List<Uri>>> byType = new HashMap<>();
+        for (Uri uri : uris) {
+            if (uri == null || !RealPathUtil.isMediaDocument(uri) || !DocumentsContract.isDocumentUri(context, uri)) {
+                continue;
+            }
+
+            String[] split = DocumentIds.split(DocumentsContract.getDocumentId(uri));
+            if (split == null) {
+                continue;
+            }
+
+            Map<String, List<Uri>> ids = byType.get(split[0]);
+            if (ids == null) {
+                ids = new HashMap<>();
+                byType.put(split[0], ids);
+            }
+
+            List<Uri> sameId = ids.get(split[1]);
+            if (sameId == null) {
+                sameId = new ArrayList<>(1);
+                ids.put(split[1], sameId);
+            }
+
+            sameId.add(uri);
+        }
+
+        for (Map.Entry<String, Map<String, List<Uri>>> entry : byType.entrySet()) {
+            String type = entry.getKey();
+            Uri contentUri;
+            String[] projection;
+
+            if ("image".equals(type)) {
+                contentUri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+                projection = IMAGE_PROJECTION;
+            } else if ("video".equals(type)) {
+                contentUri = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
+                projection = VIDEO_PROJECTION;
+            } else if ("audio".equals(type)) {
+                contentUri = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+                projection = AUDIO_PROJECTION;
+            } else {
+                continue;
+            }
+
+            List<String> ids = new ArrayList<>(entry.getValue().keySet());
+            for (int start = 0; start < ids.size(); start += MAX_BATCH) {
+                List<String> batch = ids.subList(start, Math.min(ids.size(), start + MAX_BATCH));
+                try {
+                    query(context, contentUri, projection, batch, entry.getValue(), result);
+                } catch (RuntimeException e) {
+                    // e.g. SecurityException; these URIs fall back to per-URI resolution
+                    Log.w(TAG, "Batch MediaStore lookup failed for " + contentUri, e);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static void query(Context context, Uri contentUri, String[] projection, List<String> ids,
+                              Map<String, List<Uri>> urisById, Map<Uri, MediaInfo> result) {
+        StringBuilder selection = new StringBuilder(MediaStore.MediaColumns._ID).append(" IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(")");
+
+        Cursor cursor = context.getContentResolver().query(contentUri, projection, selection.toString(),
+                ids.toArray(new String[ids.size()]), null);
+        if (cursor == null) {
+            return;
+        }
+
+        try {
+            int idIndex = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns._ID);
+            int dataIndex = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATA);
+            int sizeIndex = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.SIZE);
+            int mimeIndex = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.MIME_TYPE);
+            int widthIndex = cursor.getColumnIndex(MediaStore.MediaColumns.WIDTH);
+            int heightIndex = cursor.getColumnIndex(MediaStore.MediaColumns.HEIGHT);
+            int dateModifiedIndex = cursor.getColumnIndex(MediaStore.MediaColumns.DATE_MODIFIED);
+            int orientationIndex = cursor.getColumnIndex(MediaStore.Images.ImageColumns.ORIENTATION);
+
+            while (cursor.moveToNext()) {
+                String path = cursor.getString(dataIndex);
+                if (path == null) {
+                    continue;
+                }
+
+                MediaInfo info = new MediaInfo(path,
+                        cursor.isNull(sizeIndex) ? 0 : cursor.getLong(sizeIndex),
+                        cursor.getString(mimeIndex),
+                        widthIndex < 0 || cursor.isNull(widthIndex) ? 0 : cursor.getInt(widthIndex),
+                        heightIndex < 0 || cursor.isNull(heightIndex) ? 0 : cursor.getInt(heightIndex),
+                        dateModifiedIndex < 0 || cursor.isNull(dateModifiedIndex) ? 0 : cursor.getLong(dateModifiedIndex),
+                        orientationIndex < 0 || cursor.isNull(orientationIndex) ? 0 : cursor.getInt(orientationIndex));
+
+                List<Uri> uris = urisById.get(cursor.getString(idIndex));
+                if (uris != null) {
+                    for (Uri uri : uris) {
+                        result.put(uri, info);
+                    }
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.util.LruCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Memoizes {@link RealPathUtil#getRealPathFromURI} so URIs resolved before skip
+ * the provider query. The cache is dropped whenever the MediaStore image or
+ * video tables change, since rows (and so paths) may have moved.
+ */
+class PathResolver {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final Context context;
+    private final LruCache<String, String> cache;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicInteger invalidations = new AtomicInteger();
+
+    private final ContentObserver observer = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
+
+    PathResolver(Context context, int capacity) {
+        this.context = context;
+        this.cache = new LruCache<>(capacity);
+    }
+
+    void register() {
+        ContentResolver resolver = context.getContentResolver();
+        resolver.registerContentObserver(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, true, observer);
+        resolver.registerContentObserver(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, true, observer);
+    }
+
+    void unregister() {
+        context.getContentResolver().unregisterContentObserver(observer);
+    }
+
+    String resolve(Uri uri) {
+        if ("file".equalsIgnoreCase(uri.getScheme())) {
+            return uri.getPath();
+        }
+
+        String key = uri.toString();
+        String path = cache.get(key);
+        if (path != null) {
+            return path;
+        }
+
+        int resolvedIn = generation.get();
+        path = RealPathUtil.getRealPathFromURI(context, uri);
+
+        // don't cache what may have been resolved against rows that changed meanwhile
+        if (path != null && resolvedIn == generation.get()) {
+            cache.put(key, path);
+        }
+
+        return path;
+    }
+
+    /**
+     * Caches a path resolved elsewhere, e.g. by a batch query.
+     */
+    void put(Uri uri, String path) {
+        cache.put(uri.toString(), path);
+    }
+
+    void invalidate() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        cache.evictAll();
+    }
+
+    int getHits() {
+        return cache.hitCount();
+    }
+
+    int getMisses() {
+        return cache.missCount();
+    }
+
+    int getInvalidations() {
+        return invalidations.get();
+    }
+
+    int getSize() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,19 @@
+package com.reactnative.ivpusic.imagepicker;
+
+/**
+ * Processing failure that carries the error code the promise should be
+ * rejected with, instead of the generic one of the failing stage.
+ */
+class PickerException extends Exception {
+
+    private final String code;
+
+    PickerException(String code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,208 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.os.Build;
+import android.os.Trace;
+import android.util.Log;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency and byte counters per processing stage. Stages measured on a single
+ * thread are also marked as {@link Trace} sections, and logged when the
+ * {@code ImageCropPicker} tag is loggable at VERBOSE level.
+ * Percentiles are computed over the most recent {@link #SAMPLES} runs.
+ * The Java heap is sampled whenever a pick has been processed, while its
+ * result is still referenced, to catch memory regressions of the pick path.
+ */
+class PickerMetrics {
+
+    static final String STAGE_LAUNCH = "launch";
+    static final String STAGE_CROP = "crop";
+    static final String STAGE_QUEUE = "queue";
+    static final String STAGE_RESOLVE_PATH = "resolvePath";
+    static final String STAGE_IMPORT = "import";
+    static final String STAGE_BOUNDS_DECODE = "boundsDecode";
+    static final String STAGE_EXIF = "exif";
+    static final String STAGE_REENCODE = "reencode";
+    static final String STAGE_REGION_CROP = "regionCrop";
+    static final String STAGE_THUMBNAIL = "thumbnail";
+    static final String STAGE_BASE64 = "base64";
+    static final String STAGE_HASH = "hash";
+    static final String STAGE_VIDEO_METADATA = "videoMetadata";
+    static final String STAGE_RESOLVE = "resolve";
+
+    static final int SAMPLES = 256;
+
+    private static final String TAG = "ImageCropPicker";
+
+    /**
+     * Stage durations of a single selection, returned as {@code timing}.
+     */
+    static class Timing {
+        private final Map<String, Double> millis = new LinkedHashMap<>();
+
+        synchronized void add(String stage, long nanos) {
+            Double previous = millis.get(stage);
+            millis.put(stage, (previous == null ? 0 : previous) + nanos / 1e6);
+        }
+
+        synchronized WritableMap toMap() {
+            WritableMap map = new WritableNativeMap();
+            for (Map.Entry<String, Double> entry : millis.entrySet()) {
+                map.putDouble(entry.getKey(), entry.getValue());
+            }
+
+            return map;
+        }
+    }
+
+    /**
+     * A running measurement, see {@link #start}.
+     */
+    class Span {
+        private final String stage;
+        private final Timing timing;
+        private final long startNanos;
+        private final boolean traced;
+
+        private Span(String stage, Timing timing) {
+            this.stage = stage;
+            this.timing = timing;
+            this.traced = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+            if (traced) {
+                Trace.beginSection(TAG + ":" + stage);
+            }
+            this.startNanos = System.nanoTime();
+        }
+
+        void end() {
+            end(0);
+        }
+
+        /**
+         * Must be called on the thread that started the span.
+         *
+         * @param bytes Bytes read or written by the stage
+         */
+        void end(long bytes) {
+            long nanos = System.nanoTime() - startNanos;
+            if (traced) {
+                Trace.endSection();
+            }
+
+            record(stage, nanos, bytes, timing);
+        }
+    }
+
+    private static class Stage {
+        private final long[] samples = new long[SAMPLES];
+        private long count;
+        private long bytes;
+        private long maxNanos;
+
+        synchronized void add(long nanos, long bytes) {
+            samples[(int) (count % SAMPLES)] = nanos;
+            count++;
+            this.bytes += bytes;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        synchronized WritableMap toMap() {
+            int size = (int) Math.min(count, SAMPLES);
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+
+            WritableMap map = new WritableNativeMap();
+            map.putDouble("count", count);
+            map.putDouble("p50", percentile(sorted, 50) / 1e6);
+            map.putDouble("p95", percentile(sorted, 95) / 1e6);
+            map.putDouble("max", maxNanos / 1e6);
+            map.putDouble("bytes", bytes);
+            return map;
+        }
+
+        private static long percentile(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private long heapSamples;
+    private long lastHeapBytes;
+    private long peakHeapBytes;
+
+    /**
+     * @param timing Also receives the duration, or null
+     */
+    Span start(String stage, Timing timing) {
+        return new Span(stage, timing);
+    }
+
+    /**
+     * Records a stage that was timed elsewhere, e.g. across activities.
+     */
+    void record(String stage, long nanos, long bytes, Timing timing) {
+        getStage(stage).add(nanos, bytes);
+
+        if (timing != null) {
+            timing.add(stage, nanos);
+        }
+
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, stage + " took " + (nanos / 1000) + "us" + (bytes > 0 ? " for " + bytes + " bytes" : ""));
+        }
+    }
+
+    /**
+     * Records the Java heap currently in use.
+     */
+    void sampleHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+
+        synchronized (this) {
+            heapSamples++;
+            lastHeapBytes = used;
+            peakHeapBytes = Math.max(peakHeapBytes, used);
+        }
+    }
+
+    private synchronized Stage getStage(String name) {
+        Stage stage = stages.get(name);
+        if (stage == null) {
+            stage = new Stage();
+            stages.put(name, stage);
+        }
+
+        return stage;
+    }
+
+    /**
+     * @return The counters of each stage keyed by its name, plus the heap
+     * samples under {@code heap}
+     */
+    synchronized WritableMap toMap() {
+        WritableMap map = new WritableNativeMap();
+        for (Map.Entry<String, Stage> entry : stages.entrySet()) {
+            map.putMap(entry.getKey(), entry.getValue().toMap());
+        }
+
+        WritableMap heap = new WritableNativeMap();
+        heap.putDouble("samples", heapSamples);
+        heap.putDouble("lastBytes", lastHeapBytes);
+        heap.putDouble("peakBytes", peakHeapBytes);
+        heap.putDouble("maxBytes", Runtime.getRuntime().maxMemory());
+        map.putMap("heap", heap);
+        return map;
+    }
+}
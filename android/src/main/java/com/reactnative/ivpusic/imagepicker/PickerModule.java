@@ -7,7 +7,10 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
 import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Rect;
 import android.media.MediaMetadataRetriever;
 import android.media.ThumbnailUtils;
 import android.net.Uri;
@@ -16,7 +19,6 @@ import android.os.Environment;
 import android.provider.MediaStore;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.content.FileProvider;
-import android.util.Base64;
 import android.webkit.MimeTypeMap;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
@@ -28,11 +30,13 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.facebook.react.modules.core.PermissionAwareActivity;
 import com.facebook.react.modules.core.PermissionListener;
 import com.yalantis.ucrop.UCrop;
@@ -41,15 +45,22 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 class PickerModule extends ReactContextBaseJavaModule implements ActivityEventListener {
 
@@ -68,41 +79,73 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
     private static final String E_CANNOT_LAUNCH_CAMERA = "E_CANNOT_LAUNCH_CAMERA";
     private static final String E_PERMISSIONS_MISSING = "E_PERMISSIONS_MISSING";
     private static final String E_ERROR_WHILE_CLEANING_FILES = "E_ERROR_WHILE_CLEANING_FILES";
-
-    private Promise mPickerPromise;
-
-    private String pickType;
-    private boolean pickVideo = false;
-
-    private boolean cropping = false;
-    private boolean multiple = false;
-    private boolean includeBase64 = false;
-
-    //Default colors from from https://material.google.com/style/color.html#
-
-    //Grey 800
-    private final String DEFAULT_TINT = "#424242";
-    private String cropperTintColor = DEFAULT_TINT;
+    private static final String E_BASE64_TOO_LARGE = "E_BASE64_TOO_LARGE";
+    private static final String E_DUPLICATE_REQUEST_ID = "E_DUPLICATE_REQUEST_ID";
+    private static final String E_INVALID_OPTIONS = "E_INVALID_OPTIONS";
+    private static final String E_MEDIA_QUERY_FAILED = "E_MEDIA_QUERY_FAILED";
+    private static final String E_CROP_FAILED = "E_CROP_FAILED";
+    private static final String E_CANCELLED = "E_CANCELLED";
+    private static final String E_TIMEOUT = "E_TIMEOUT";
+
+    private static final int THUMBNAIL_SIZE = 96;
+    private static final int DEFAULT_COMPRESS_QUALITY = 90;
+    /**
+     * A re-encode holds the full-size image and its rotated copy, several
+     * hundred MB for large photos, so items of a selection take turns.
+     */
+    private static final int MAX_CONCURRENT_REENCODES = 1;
+
+    static final String EVENT_ITEM_READY = "ImageCropPicker:itemReady";
 
     //Light Blue 500
     private final String DEFAULT_WIDGET_COLOR = "#03A9F4";
-    private int width = 200;
-    private int height = 200;
     private final ReactApplicationContext mReactContext;
-    private Uri mCameraCaptureURI;
-    private String mCurrentPhotoPath;
+    private final TempStore mTempStore;
+    private final ProcessingEngine mEngine;
+    private final Base64StreamRegistry mBase64Streams;
+    private final ThumbnailCache mThumbnails;
+    private final PathResolver mPathResolver;
+    private final UriImporter mImporter;
+    private final ContentHasher mHasher;
+    private final BitmapPool mBitmaps;
+    private final Uploader mUploader;
+    private final PickerMetrics mMetrics;
+    private final Semaphore mReencodePermits = new Semaphore(MAX_CONCURRENT_REENCODES);
+
+    // requests that are not settled yet, by request id
+    private final ConcurrentHashMap<String, PickerSession> mSessions = new ConcurrentHashMap<>();
+
+    // the request whose picker, camera or cropper is on screen
+    private volatile PickerSession mActiveSession;
 
     PickerModule(ReactApplicationContext reactContext) {
+        this(reactContext, ProcessingEngine.defaultThreadCount());
+    }
+
+    PickerModule(ReactApplicationContext reactContext, int processingThreads) {
         super(reactContext);
         reactContext.addActivityEventListener(this);
         mReactContext = reactContext;
+        mTempStore = new TempStore(new File(reactContext.getCacheDir(), "react-native-image-crop-picker"), "thumbnails");
+        mMetrics = new PickerMetrics();
+        mEngine = new ProcessingEngine(processingThreads, ProcessingEngine.DEFAULT_QUEUE_CAPACITY, mMetrics);
+        mBase64Streams = new Base64StreamRegistry(reactContext, mEngine);
+        mThumbnails = new ThumbnailCache(new File(getTmpDir(), "thumbnails"),
+                ThumbnailCache.DEFAULT_MEMORY_BYTES, ThumbnailCache.DEFAULT_DISK_BYTES);
+        mPathResolver = new PathResolver(reactContext, PathResolver.DEFAULT_CAPACITY);
+        mPathResolver.register();
+        mHasher = new ContentHasher(ContentHasher.DEFAULT_CAPACITY);
+        mImporter = new UriImporter(reactContext, new File(getTmpDir(), "imports"), mHasher);
+        mBitmaps = new BitmapPool(BitmapPool.DEFAULT_MAX_BYTES);
+        reactContext.getApplicationContext().registerComponentCallbacks(mBitmaps);
+        mUploader = new Uploader(reactContext);
+
+        // leftovers of previous runs
+        mTempStore.scheduleEviction();
     }
 
     private String getTmpDir() {
-        String tmpDir = mReactContext.getCacheDir() + "/react-native-image-crop-picker";
-        Boolean created = new File(tmpDir).mkdir();
-
-        return tmpDir;
+        return mTempStore.getDir().getPath();
     }
 
     @Override
@@ -110,38 +153,106 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
         return "ImageCropPicker";
     }
 
-    private void setConfiguration(final ReadableMap options) {
-        multiple = options.hasKey("multiple") && options.getBoolean("multiple");
-        includeBase64 = options.hasKey("includeBase64") && options.getBoolean("includeBase64");
-        width = options.hasKey("width") ? options.getInt("width") : width;
-        height = options.hasKey("height") ? options.getInt("height") : height;
-        cropping = options.hasKey("cropping") ? options.getBoolean("cropping") : cropping;
-        cropperTintColor = options.hasKey("cropperTintColor") ? options.getString("cropperTintColor") : cropperTintColor;
+    @Override
+    public void onCatalystInstanceDestroy() {
+        // nobody is left to receive the results
+        for (PickerSession session : new ArrayList<>(mSessions.values())) {
+            cancelSession(session, E_CANCELLED, "React context was destroyed");
+        }
 
-        pickVideo = false;
-        if (options.hasKey("mediaType") && options.getString("mediaType").equals("video")) {
-            pickVideo = true;
-            cropping = false;
-        } else {
-            pickVideo = false;
+        mPathResolver.unregister();
+        mBase64Streams.closeAll();
+        mEngine.shutdown();
+        mUploader.shutdown();
+        mTempStore.shutdown();
+        mReactContext.getApplicationContext().unregisterComponentCallbacks(mBitmaps);
+        mBitmaps.clear();
+    }
+
+    /**
+     * Snapshots {@code options} into a new session. It is registered once its
+     * picker or camera is about to open, see {@link #activateSession}.
+     *
+     * @return null if the options are invalid; {@code promise} is rejected then
+     */
+    private PickerSession createSession(final ReadableMap options, final Promise promise, final String pickType) {
+        String requestId = options.hasKey("requestId") && options.getString("requestId") != null
+                ? options.getString("requestId") : UUID.randomUUID().toString();
+
+        try {
+            return new PickerSession(requestId, options, pickType, promise, mSessions);
+        } catch (IllegalArgumentException e) {
+            promise.reject(E_INVALID_OPTIONS, e.getMessage());
+            return null;
         }
     }
 
-    private void deleteRecursive(File fileOrDirectory) {
-        if (fileOrDirectory.isDirectory()) {
-            for (File child : fileOrDirectory.listFiles()) {
-                deleteRecursive(child);
-            }
+    /**
+     * Registers {@code session} and makes it the one that receives the next
+     * activity result. Sessions that are still being processed are not affected.
+     *
+     * @return false if another pending request uses the same request id
+     */
+    private boolean activateSession(PickerSession session) {
+        if (mSessions.putIfAbsent(session.id, session) != null) {
+            session.promise.reject(E_DUPLICATE_REQUEST_ID, "Request " + session.id + " is still pending");
+            return false;
+        }
+
+        PickerSession previous = mActiveSession;
+        mActiveSession = session;
+
+        if (previous != null && previous != session) {
+            // its activity never returned a result, e.g. because it was killed
+            previous.promise.reject(E_PICKER_CANCELLED_KEY, E_PICKER_CANCELLED_MSG);
+        }
+
+        return true;
+    }
+
+    /**
+     * Processes {@code session}'s result in the background and starts its
+     * {@code timeoutMs} deadline.
+     */
+    private void process(final PickerSession session, Callable<?> task) {
+        session.track(mEngine.process(session.promise, E_NO_IMAGE_DATA_FOUND, task));
+
+        if (session.timeoutMs > 0) {
+            session.track(mEngine.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    cancelSession(session, E_TIMEOUT, "Processing took longer than " + session.timeoutMs + " ms");
+                }
+            }, session.timeoutMs));
+        }
+    }
+
+    /**
+     * @return false if {@code session} was already settled
+     */
+    private boolean cancelSession(PickerSession session, String code, String message) {
+        if (mActiveSession == session) {
+            // its picker result, if it ever comes, is ignored
+            mActiveSession = null;
         }
 
-        fileOrDirectory.delete();
+        return session.cancel(code, message);
+    }
+
+    /**
+     * Hands the active session over to result processing, so the next request
+     * can open its picker while this one is still being processed.
+     */
+    private PickerSession takeActiveSession() {
+        PickerSession session = mActiveSession;
+        mActiveSession = null;
+        return session;
     }
 
     @ReactMethod
     public void clean(final Promise promise) {
 
         final Activity activity = getCurrentActivity();
-        final PickerModule module = this;
 
         if (activity == null) {
             promise.reject(E_ACTIVITY_DOES_NOT_EXIST, "Activity doesn't exist");
@@ -151,62 +262,402 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
         permissionsCheck(activity, promise, Arrays.asList(Manifest.permission.WRITE_EXTERNAL_STORAGE), new Callable<Void>() {
             @Override
             public Void call() throws Exception {
-                try {
-                    File file = new File(module.getTmpDir());
-                    if (!file.exists()) throw new Exception("File does not exist");
-
-                    module.deleteRecursive(file);
-                    promise.resolve(null);
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                    promise.reject(E_ERROR_WHILE_CLEANING_FILES, ex.getMessage());
-                }
+                mTempStore.clear(new TempStore.Callback() {
+                    @Override
+                    public void done(Exception error) {
+                        mThumbnails.onDiskCleared();
+                        mImporter.onDiskCleared();
+
+                        if (error != null) {
+                            promise.reject(E_ERROR_WHILE_CLEANING_FILES, error.getMessage());
+                        } else {
+                            promise.resolve(null);
+                        }
+                    }
+                });
 
                 return null;
             }
         });
     }
 
+    /**
+     * Stops a pending pick or upload; its promise is rejected with {@code E_CANCELLED}.
+     * Resolves with false if there was nothing to cancel.
+     */
     @ReactMethod
-    public void cleanSingle(final String pathToDelete, final Promise promise) {
-        if (pathToDelete == null) {
-            promise.reject(E_ERROR_WHILE_CLEANING_FILES, "Cannot cleanup empty path");
+    public void cancel(final String requestId, final Promise promise) {
+        PickerSession session = mSessions.get(requestId);
+        boolean cancelled = session != null
+                && cancelSession(session, E_CANCELLED, "Request " + requestId + " was cancelled");
+
+        promise.resolve(cancelled || mUploader.cancel(requestId));
+    }
+
+    @ReactMethod
+    public void getCacheStats(final Promise promise) {
+        WritableMap thumbnails = new WritableNativeMap();
+        thumbnails.putInt("memoryHits", mThumbnails.getMemoryHits());
+        thumbnails.putInt("diskHits", mThumbnails.getDiskHits());
+        thumbnails.putInt("misses", mThumbnails.getMisses());
+        thumbnails.putInt("memoryBytes", mThumbnails.getMemoryBytes());
+        thumbnails.putDouble("diskBytes", mThumbnails.getDiskBytes());
+
+        WritableMap paths = new WritableNativeMap();
+        paths.putInt("hits", mPathResolver.getHits());
+        paths.putInt("misses", mPathResolver.getMisses());
+        paths.putInt("invalidations", mPathResolver.getInvalidations());
+        paths.putInt("size", mPathResolver.getSize());
+
+        WritableMap bitmaps = new WritableNativeMap();
+        bitmaps.putInt("hits", mBitmaps.getHits());
+        bitmaps.putInt("misses", mBitmaps.getMisses());
+        bitmaps.putDouble("bytes", mBitmaps.getBytes());
+
+        WritableMap stats = new WritableNativeMap();
+        stats.putMap("thumbnails", thumbnails);
+        stats.putMap("paths", paths);
+        stats.putMap("bitmaps", bitmaps);
+        promise.resolve(stats);
+    }
+
+    @ReactMethod
+    public void getMetrics(final Promise promise) {
+        promise.resolve(mMetrics.toMap());
+    }
+
+    /**
+     * Crops {@code path} without an editor, decoding only the cropped region.
+     * The rectangle is in displayed pixels, like {@code width} and {@code height} of picked images.
+     */
+    @ReactMethod
+    public void cropImage(final String path, final ReadableMap options, final Promise promise) {
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+        final int outWidth;
+        final int outHeight;
+        final Bitmap.CompressFormat format;
+        final int quality;
+
+        try {
+            for (String key : Arrays.asList("x", "y", "width", "height")) {
+                if (!options.hasKey(key)) {
+                    throw new IllegalArgumentException(key + " is required");
+                }
+            }
+
+            x = options.getInt("x");
+            y = options.getInt("y");
+            width = options.getInt("width");
+            height = options.getInt("height");
+            if (x < 0 || y < 0 || width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Crop rectangle must not be empty or start outside the image");
+            }
+
+            // a single output dimension keeps the aspect ratio of the rectangle
+            int requestedWidth = options.hasKey("outWidth") ? options.getInt("outWidth") : 0;
+            int requestedHeight = options.hasKey("outHeight") ? options.getInt("outHeight") : 0;
+            if (requestedWidth <= 0 && requestedHeight <= 0) {
+                requestedWidth = width;
+                requestedHeight = height;
+            } else if (requestedHeight <= 0) {
+                requestedHeight = Math.max(1, Math.round(height * requestedWidth / (float) width));
+            } else if (requestedWidth <= 0) {
+                requestedWidth = Math.max(1, Math.round(width * requestedHeight / (float) height));
+            }
+            outWidth = requestedWidth;
+            outHeight = requestedHeight;
+
+            // null keeps the format of the source
+            format = options.hasKey("compressImageFormat")
+                    ? PickerSession.parseFormat(options.getString("compressImageFormat")) : null;
+            if (options.hasKey("compressImageQuality")) {
+                double value = options.getDouble("compressImageQuality");
+                if (value < 0 || value > 1) {
+                    throw new IllegalArgumentException("compressImageQuality must be between 0 and 1: " + value);
+                }
+                quality = (int) Math.round(value * 100);
+            } else {
+                quality = DEFAULT_COMPRESS_QUALITY;
+            }
+        } catch (IllegalArgumentException e) {
+            promise.reject(E_INVALID_OPTIONS, e.getMessage());
             return;
         }
 
+        mEngine.process(new PickerPromise(promise), E_CROP_FAILED, new Callable<WritableMap>() {
+            @Override
+            public WritableMap call() throws Exception {
+                return cropRegion(stripFilePrefix(path), x, y, width, height, outWidth, outHeight, format, quality);
+            }
+        });
+    }
+
+    /**
+     * Uploads picked files straight from disk, see {@link Uploader}.
+     */
+    @ReactMethod
+    public void upload(final ReadableArray paths, final ReadableMap options, final Promise promise) {
+        String requestId = options.hasKey("requestId") && options.getString("requestId") != null
+                ? options.getString("requestId") : UUID.randomUUID().toString();
+
+        List<File> files = new ArrayList<>(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            files.add(new File(stripFilePrefix(paths.getString(i))));
+        }
+
+        try {
+            if (!mUploader.start(requestId, files, options, new PickerPromise(promise))) {
+                promise.reject(E_DUPLICATE_REQUEST_ID, "Another request with id " + requestId + " is still pending");
+            }
+        } catch (IllegalArgumentException e) {
+            promise.reject(E_INVALID_OPTIONS, e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves with one page of the media library, see {@link MediaLibrary}.
+     */
+    @ReactMethod
+    public void queryMedia(final ReadableMap options, final Promise promise) {
         final Activity activity = getCurrentActivity();
-        final PickerModule module = this;
 
         if (activity == null) {
             promise.reject(E_ACTIVITY_DOES_NOT_EXIST, "Activity doesn't exist");
             return;
         }
 
-        permissionsCheck(activity, promise, Arrays.asList(Manifest.permission.WRITE_EXTERNAL_STORAGE), new Callable<Void>() {
+        final MediaLibrary.Query query;
+        try {
+            query = new MediaLibrary.Query(options);
+        } catch (IllegalArgumentException e) {
+            promise.reject(E_INVALID_OPTIONS, e.getMessage());
+            return;
+        }
+
+        permissionsCheck(activity, promise, Arrays.asList(Manifest.permission.READ_EXTERNAL_STORAGE), new Callable<Void>() {
             @Override
             public Void call() throws Exception {
-                try {
-                    String path = pathToDelete;
-                    final String filePrefix = "file://";
-                    if (path.startsWith(filePrefix)) {
-                        path = path.substring(filePrefix.length());
+                mEngine.process(new PickerPromise(promise), E_MEDIA_QUERY_FAILED, new Callable<WritableMap>() {
+                    @Override
+                    public WritableMap call() throws Exception {
+                        return getMediaPage(MediaLibrary.query(mReactContext.getContentResolver(), query));
                     }
+                });
+                return null;
+            }
+        });
+    }
+
+    private WritableMap getMediaPage(MediaLibrary.Page page) throws Exception {
+        List<Callable<ThumbnailCache.Thumbnail>> tasks = new ArrayList<>(page.items.size());
+        for (final MediaLibrary.Item item : page.items) {
+            tasks.add(new Callable<ThumbnailCache.Thumbnail>() {
+                @Override
+                public ThumbnailCache.Thumbnail call() throws Exception {
+                    return getLibraryThumbnail(item);
+                }
+            });
+        }
 
-                    File file = new File(path);
-                    if (!file.exists()) throw new Exception("File does not exist. Path: " + path);
+        List<Future<ThumbnailCache.Thumbnail>> futures = mEngine.fanOut(tasks);
+        WritableArray items = new WritableNativeArray();
 
-                    module.deleteRecursive(file);
-                    promise.resolve(null);
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                    promise.reject(E_ERROR_WHILE_CLEANING_FILES, ex.getMessage());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                MediaLibrary.Item item = page.items.get(i);
+                WritableMap map = new WritableNativeMap();
+                map.putString("id", String.valueOf(item.id));
+                map.putString("uri", item.uri.toString());
+                map.putString("path", item.path == null ? null : "file://" + item.path);
+                map.putString("mime", item.mime);
+                map.putString("mediaType", item.video ? "video" : "photo");
+                map.putDouble("size", item.size);
+                map.putInt("width", item.width);
+                map.putInt("height", item.height);
+                map.putDouble("dateAdded", item.dateAdded * 1000);
+
+                try {
+                    ThumbnailCache.Thumbnail thumbnail = futures.get(i).get();
+                    map.putString("thumbPath", thumbnail == null ? null : "file://" + thumbnail.file.getAbsolutePath());
+                } catch (ExecutionException ex) {
+                    // the item stays listed, just without a thumbnail
+                    map.putString("thumbPath", null);
+                }
+
+                items.pushMap(map);
+            }
+        } finally {
+            for (Future<ThumbnailCache.Thumbnail> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        WritableMap result = new WritableNativeMap();
+        result.putArray("items", items);
+        result.putString("next", page.next);
+        return result;
+    }
+
+    /**
+     * Same cache entries as {@code thumb} of picked media, so both share thumbnails.
+     */
+    private ThumbnailCache.Thumbnail getLibraryThumbnail(final MediaLibrary.Item item) throws Exception {
+        if (item.path == null) {
+            return null;
+        }
+
+        if (!item.video) {
+            final int orientation = ImageMetadata.fromDegrees(item.orientation);
+            return getThumbnail(new File(item.path), getImageThumbnailVariant(orientation), null,
+                    new ThumbnailCache.Loader() {
+                        @Override
+                        public byte[] load() throws Exception {
+                            return createImageThumbnail(item.path, item.width, item.height, orientation);
+                        }
+                    });
+        }
+
+        return getThumbnail(new File(item.path), "video-micro", null, new ThumbnailCache.Loader() {
+            @Override
+            public byte[] load() throws Exception {
+                MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+                try {
+                    retriever.setDataSource(item.path);
+                    Bitmap frame = retriever.getFrameAtTime(-1, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+                    return frame == null ? null : createThumbnail(frame);
+                } finally {
+                    retriever.release();
                 }
+            }
+        });
+    }
+
+    @ReactMethod
+    public void cleanSingle(final String pathToDelete, final Promise promise) {
+        if (pathToDelete == null) {
+            promise.reject(E_ERROR_WHILE_CLEANING_FILES, "Cannot cleanup empty path");
+            return;
+        }
+
+        cleanFiles(Arrays.asList(new File(stripFilePrefix(pathToDelete))), false, promise);
+    }
+
+    @ReactMethod
+    public void cleanMultiple(final ReadableArray pathsToDelete, final Promise promise) {
+        List<File> files = new ArrayList<>(pathsToDelete.size());
+        for (int i = 0; i < pathsToDelete.size(); i++) {
+            String path = pathsToDelete.getString(i);
+            if (path == null) {
+                promise.reject(E_ERROR_WHILE_CLEANING_FILES, "Cannot cleanup empty path");
+                return;
+            }
+
+            files.add(new File(stripFilePrefix(path)));
+        }
+
+        cleanFiles(files, true, promise);
+    }
+
+    /**
+     * Deletes {@code files} off the calling thread. Files inside the tmp directory
+     * need no permissions; for anything else, one check covers the whole batch.
+     */
+    private void cleanFiles(final List<File> files, final boolean skipMissing, final Promise promise) {
+        final Callable<Void> delete = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                mTempStore.delete(files, skipMissing, new TempStore.Callback() {
+                    @Override
+                    public void done(Exception error) {
+                        if (error != null) {
+                            promise.reject(E_ERROR_WHILE_CLEANING_FILES, error.getMessage());
+                        } else {
+                            promise.resolve(null);
+                        }
+                    }
+                });
 
                 return null;
             }
+        };
+
+        boolean inTmpDir = true;
+        for (File file : files) {
+            if (!mTempStore.contains(file)) {
+                inTmpDir = false;
+                break;
+            }
+        }
+
+        if (inTmpDir) {
+            try {
+                delete.call();
+            } catch (Exception e) {
+                promise.reject(E_CALLBACK_ERROR, "Unknown error", e);
+            }
+            return;
+        }
+
+        final Activity activity = getCurrentActivity();
+
+        if (activity == null) {
+            promise.reject(E_ACTIVITY_DOES_NOT_EXIST, "Activity doesn't exist");
+            return;
+        }
+
+        permissionsCheck(activity, promise, Arrays.asList(Manifest.permission.WRITE_EXTERNAL_STORAGE), delete);
+    }
+
+    private static String stripFilePrefix(String path) {
+        final String filePrefix = "file://";
+        if (path.startsWith(filePrefix)) {
+            return path.substring(filePrefix.length());
+        }
+
+        return path;
+    }
+
+    @ReactMethod
+    public void configureTempStore(final ReadableMap options) {
+        long maxBytes = options.hasKey("maxBytes") ? (long) options.getDouble("maxBytes") : mTempStore.getMaxBytes();
+        long maxAgeMs = options.hasKey("maxAgeMs") ? (long) options.getDouble("maxAgeMs") : mTempStore.getMaxAgeMs();
+        mTempStore.configure(maxBytes, maxAgeMs);
+    }
+
+    @ReactMethod
+    public void getTempStoreStats(final Promise promise) {
+        mTempStore.getStats(new TempStore.StatsCallback() {
+            @Override
+            public void done(TempStore.Stats stats) {
+                WritableMap result = new WritableNativeMap();
+                result.putDouble("bytesUsed", stats.bytesUsed);
+                result.putInt("fileCount", stats.fileCount);
+                result.putInt("evictions", stats.evictions);
+                result.putDouble("maxBytes", mTempStore.getMaxBytes());
+                result.putDouble("maxAgeMs", mTempStore.getMaxAgeMs());
+                promise.resolve(result);
+            }
         });
     }
 
+    @ReactMethod
+    public void startBase64Stream(final String streamId) {
+        mBase64Streams.start(streamId);
+    }
+
+    @ReactMethod
+    public void ackBase64Chunk(final String streamId, final int index) {
+        mBase64Streams.ack(streamId, index);
+    }
+
+    @ReactMethod
+    public void cancelBase64Stream(final String streamId) {
+        mBase64Streams.cancel(streamId);
+    }
+
     private void permissionsCheck(final Activity activity, final Promise promise, final List<String> requiredPermissions, final Callable<Void> callback) {
 
         List<String> missingPermissions = new ArrayList<>();
@@ -257,6 +708,10 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
 
     @ReactMethod
     public void openCamera(final ReadableMap options, final Promise promise) {
+        openCamera(options, promise, null);
+    }
+
+    private void openCamera(final ReadableMap options, final Promise promise, final String pickType) {
 
         if (!isCameraAvailable()) {
             promise.reject(E_CAMERA_IS_NOT_AVAILABLE, "Camera not available");
@@ -270,81 +725,100 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
             return;
         }
 
-        setConfiguration(options);
-        mPickerPromise = promise;
+        final PickerSession session = createSession(options, promise, pickType);
+        if (session == null) {
+            return;
+        }
 
         permissionsCheck(activity, promise, Arrays.asList(Manifest.permission.CAMERA, Manifest.permission.WRITE_EXTERNAL_STORAGE), new Callable<Void>() {
             @Override
             public Void call() throws Exception {
-                initiateCamera(activity);
+                if (activateSession(session)) {
+                    initiateCamera(session, activity);
+                }
                 return null;
             }
         });
     }
 
-    private void initiateCamera(Activity activity) {
+    private void initiateCamera(PickerSession session, Activity activity) {
 
         try {
             int requestCode = CAMERA_PICKER_REQUEST;
             Intent cameraIntent;// = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
-            if (pickVideo) {
+            if (session.pickVideo) {
                 cameraIntent = new Intent(MediaStore.ACTION_VIDEO_CAPTURE);
             } else {
                 cameraIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
             }
 
-            File imageFile = createImageFile();
+            // not a temp file: once taken, the shot is the user's, even if the request is cancelled
+            File imageFile = createImageFile(session);
 
             if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
-                mCameraCaptureURI = Uri.fromFile(imageFile);
+                session.cameraCaptureUri = Uri.fromFile(imageFile);
             } else {
-                mCameraCaptureURI = FileProvider.getUriForFile(activity,
+                session.cameraCaptureUri = FileProvider.getUriForFile(activity,
                         activity.getApplicationContext().getPackageName() + ".provider",
                         imageFile);
             }
 
-            android.util.Log.v("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ", "set IMAGE FILENAME: " + mCameraCaptureURI);
-            cameraIntent.putExtra(MediaStore.EXTRA_OUTPUT, mCameraCaptureURI);
+            cameraIntent.putExtra(MediaStore.EXTRA_OUTPUT, session.cameraCaptureUri);
 
             if (cameraIntent.resolveActivity(mReactContext.getPackageManager()) == null) {
-                mPickerPromise.reject(E_CANNOT_LAUNCH_CAMERA, "Cannot launch camera");
+                takeActiveSession();
+                deleteUnusedCapture(session);
+                if (!finishCapturesIfAny(session)) {
+                    session.promise.reject(E_CANNOT_LAUNCH_CAMERA, "Cannot launch camera");
+                }
                 return;
             }
 
+            session.uiStartedAt = System.nanoTime();
             activity.startActivityForResult(cameraIntent, requestCode);
         } catch (Exception e) {
-            mPickerPromise.reject(E_FAILED_TO_OPEN_CAMERA, e);
+            takeActiveSession();
+            deleteUnusedCapture(session);
+            if (!finishCapturesIfAny(session)) {
+                session.promise.reject(E_FAILED_TO_OPEN_CAMERA, e);
+            }
         }
 
     }
 
-    private void initiatePicker(final Activity activity) {
+    private void initiatePicker(PickerSession session, final Activity activity) {
         try {
             final Intent galleryIntent = new Intent(Intent.ACTION_PICK);
 
-            if (cropping) {
+            if (session.cropping) {
                 galleryIntent.setType("image/*");
             } else {
-                if (pickVideo) {
+                if (session.pickVideo) {
                     galleryIntent.setType("video/*");
                 } else {
                     galleryIntent.setType("image/*");
                 }
             }
 
-            galleryIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, multiple);
+            galleryIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, session.multiple);
             galleryIntent.setAction(Intent.ACTION_GET_CONTENT);
             galleryIntent.putExtra(Intent.EXTRA_LOCAL_ONLY, true);
 
             final Intent chooserIntent = Intent.createChooser(galleryIntent, "Pick an image");
+            session.uiStartedAt = System.nanoTime();
             activity.startActivityForResult(chooserIntent, IMAGE_PICKER_REQUEST);
         } catch (Exception e) {
-            mPickerPromise.reject(E_FAILED_TO_SHOW_PICKER, e);
+            takeActiveSession();
+            session.promise.reject(E_FAILED_TO_SHOW_PICKER, e);
         }
     }
 
     @ReactMethod
     public void openPicker(final ReadableMap options, final Promise promise) {
+        openPicker(options, promise, null);
+    }
+
+    private void openPicker(final ReadableMap options, final Promise promise, final String pickType) {
         final Activity activity = getCurrentActivity();
 
         if (activity == null) {
@@ -352,13 +826,17 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
             return;
         }
 
-        setConfiguration(options);
-        mPickerPromise = promise;
+        final PickerSession session = createSession(options, promise, pickType);
+        if (session == null) {
+            return;
+        }
 
         permissionsCheck(activity, promise, Arrays.asList(Manifest.permission.WRITE_EXTERNAL_STORAGE), new Callable<Void>() {
             @Override
             public Void call() throws Exception {
-                initiatePicker(activity);
+                if (activateSession(session)) {
+                    initiatePicker(session, activity);
+                }
                 return null;
             }
         });
@@ -406,12 +884,10 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
 
                 switch (action) {
                     case "photo":
-                        pickType = "camera";
-                        openCamera(options, promise);
+                        openCamera(options, promise, "camera");
                         break;
                     case "library":
-                        pickType = "gallery";
-                        openPicker(options, promise);
+                        openPicker(options, promise, "gallery");
                         break;
                     case "cancel":
                         promise.reject("Cancel pressed", "");
@@ -431,31 +907,43 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
         dialog.show();
     }
 
-    private String getBase64StringFromFile(String absoluteFilePath) {
-        InputStream inputStream;
+    /**
+     * @param hashAlgorithm If set, the file's digest is computed in the same read
+     */
+    private String getBase64StringFromFile(String absoluteFilePath, long maxBase64Bytes, String hashAlgorithm,
+                                           PickerMetrics.Timing timing) throws IOException, PickerException {
+        File file = new File(absoluteFilePath);
+        checkBase64Size(file, maxBase64Bytes);
 
+        PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_BASE64, timing);
         try {
-            inputStream = new FileInputStream(new File(absoluteFilePath));
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return null;
-        }
+            if (hashAlgorithm == null) {
+                return Base64Encoder.encodeFile(file);
+            }
 
-        byte[] bytes;
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
+            MessageDigest digest = FileDigests.newDigest(hashAlgorithm);
+            String data = Base64Encoder.encodeFile(file, digest);
+            mHasher.put(file, hashAlgorithm, digest);
 
-        try {
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                output.write(buffer, 0, bytesRead);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return data;
+        } finally {
+            span.end(file.length());
         }
+    }
 
-        bytes = output.toByteArray();
-        return Base64.encodeToString(bytes, Base64.NO_WRAP);
+    /**
+     * Applies {@code maxBase64Bytes}, whether the data is returned at once or streamed.
+     */
+    private static void checkBase64Size(File file, long maxBase64Bytes) throws IOException, PickerException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("File does not exist. Path: " + file.getPath());
+        }
+
+        long encodedLength = Base64Encoder.encodedLength(file.length());
+        if (maxBase64Bytes > 0 && encodedLength > maxBase64Bytes) {
+            throw new PickerException(E_BASE64_TOO_LARGE, "Base64 data would be " + encodedLength
+                    + " bytes, more than maxBase64Bytes (" + maxBase64Bytes + ")");
+        }
     }
 
     private static String getMimeType(String url) {
@@ -468,108 +956,784 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
         return type;
     }
 
-    private WritableMap getSelection(Activity activity, Uri uri, boolean isCamera) throws Exception {
-        String path = resolveRealPath(activity, uri, isCamera);
+    private WritableMap getSelection(PickerSession session, Activity activity, Uri uri, boolean isCamera) throws Exception {
+        return getSelection(session, activity, uri, isCamera, null);
+    }
+
+    /**
+     * @param info MediaStore values from a batch lookup, or null to resolve the URI on its own
+     */
+    private WritableMap getSelection(PickerSession session, Activity activity, Uri uri, boolean isCamera,
+                                     MediaStoreBatchResolver.MediaInfo info) throws Exception {
+        PickerMetrics.Timing timing = session.includeTiming ? new PickerMetrics.Timing() : null;
+
+        String path;
+        if (info != null) {
+            path = info.path;
+            mPathResolver.put(uri, path);
+        } else {
+            PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_RESOLVE_PATH, timing);
+            try {
+                path = resolveRealPath(session, uri, isCamera);
+            } finally {
+                span.end();
+            }
+        }
+
+        if (!isCamera && isImportRequired(uri, path)) {
+            // no readable local file behind the uri, e.g. cloud providers
+            PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_IMPORT, timing);
+            File imported = null;
+            try {
+                imported = mImporter.importUri(uri, session.hashAlgorithm);
+                mTempStore.retain(imported);
+                path = imported.getAbsolutePath();
+            } finally {
+                span.end(imported != null ? imported.length() : 0);
+            }
+        }
+
         if (path == null || path.isEmpty()) {
             throw new Exception("Cannot resolve asset path.");
         }
 
-        String mime = getMimeType(path);
-        android.util.Log.v("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ", "path: " + path);
-        android.util.Log.v("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ", "mime: " + mime);
-        if (pickVideo && mime != null && mime.startsWith("video/")) {
-            return getVideo(path, mime);
+        String mime = info != null && info.mime != null ? info.mime : getMimeType(path);
+        return putTiming(getMedia(session, path, mime, info, timing), timing);
+    }
+
+    /**
+     * Processes one shot of a multiple camera session, see {@link #addCapture}.
+     */
+    private WritableMap getCapture(PickerSession session, String path) throws Exception {
+        PickerMetrics.Timing timing = session.includeTiming ? new PickerMetrics.Timing() : null;
+        return putTiming(getMedia(session, path, getMimeType(path), null, timing), timing);
+    }
+
+    private WritableMap getMedia(PickerSession session, String path, String mime,
+                                 MediaStoreBatchResolver.MediaInfo info, PickerMetrics.Timing timing) throws Exception {
+        if (session.pickVideo && mime != null && mime.startsWith("video/")) {
+            return getVideo(session, path, mime, timing);
         }
 
-        return getImage(path);
+        return getImage(session, path, info, false, timing);
     }
 
-    private WritableMap getVideo(String path, String mime) {
-        WritableMap image = new WritableNativeMap();
+    private static WritableMap putTiming(WritableMap selection, PickerMetrics.Timing timing) {
+        if (timing != null) {
+            selection.putMap("timing", timing.toMap());
+        }
 
-        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-        retriever.setDataSource(path);
-        Bitmap bmp = retriever.getFrameAtTime();
+        return selection;
+    }
 
-        if (bmp != null) {
-            image.putInt("width", bmp.getWidth());
-            image.putInt("height", bmp.getHeight());
+    private static boolean isImportRequired(Uri uri, String path) {
+        if (uri == null || !"content".equalsIgnoreCase(uri.getScheme())) {
+            return false;
         }
 
-        Bitmap thumbB = android.media.ThumbnailUtils.createVideoThumbnail(path, MediaStore.Video.Thumbnails.MICRO_KIND); // MINI_KIND or MICRO_KIND
-        String thumbPath = this.getTmpDir() + "/image-" + UUID.randomUUID().toString() + ".jpeg";
+        return path == null || path.isEmpty() || !new File(path).canRead();
+    }
+
+    /**
+     * Processes every selected item in parallel. The result keeps the selection
+     * order. Without {@code perItemErrors} the first failing item fails the batch,
+     * otherwise failures are returned in place as error entries.
+     */
+    private WritableArray getSelections(final PickerSession session, final Activity activity, final List<Uri> uris) throws Exception {
+        final Map<Uri, MediaStoreBatchResolver.MediaInfo> infos = MediaStoreBatchResolver.resolve(mReactContext, uris);
+
+        List<Callable<WritableMap>> tasks = new ArrayList<>(uris.size());
+        for (int i = 0; i < uris.size(); i++) {
+            final Uri uri = uris.get(i);
+            tasks.add(reportWhenReady(session, i, uris.size(), uri, new Callable<WritableMap>() {
+                @Override
+                public WritableMap call() throws Exception {
+                    return getSelection(session, activity, uri, false, infos.get(uri));
+                }
+            }));
+        }
+
+        List<Future<WritableMap>> futures = mEngine.fanOut(tasks);
+        for (Future<WritableMap> future : futures) {
+            session.track(future);
+        }
+
+        return collectSelections(session, uris, futures);
+    }
+
+    /**
+     * Waits for the selections in order. Failed items reject the whole
+     * request unless {@code perItemErrors} is set.
+     */
+    private WritableArray collectSelections(PickerSession session, List<Uri> uris, List<Future<WritableMap>> futures)
+            throws Exception {
+        WritableArray result = new WritableNativeArray();
 
         try {
-            final java.io.FileOutputStream fos = new java.io.FileOutputStream(thumbPath);
-            thumbB.compress(Bitmap.CompressFormat.JPEG, 90, fos);
-            fos.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    result.pushMap(futures.get(i).get());
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (!session.perItemErrors) {
+                        throw cause instanceof Exception ? (Exception) cause : ex;
+                    }
+
+                    result.pushMap(getItemError(uris.get(i), cause));
+                }
+            }
+        } finally {
+            for (Future<WritableMap> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * With {@code progressive}, reports the item in an {@link #EVENT_ITEM_READY}
+     * event as soon as {@code task} is done, ahead of the promise that
+     * resolves with all items.
+     *
+     * @param total Number of items, or -1 while it isn't known yet
+     */
+    private Callable<WritableMap> reportWhenReady(final PickerSession session, final int index, final int total,
+                                                  final Uri uri, final Callable<WritableMap> task) {
+        if (!session.progressive) {
+            return task;
+        }
+
+        return new Callable<WritableMap>() {
+            @Override
+            public WritableMap call() throws Exception {
+                WritableMap event = new WritableNativeMap();
+                event.putString("requestId", session.id);
+                event.putInt("index", index);
+                if (total >= 0) {
+                    event.putInt("total", total);
+                } else {
+                    event.putNull("total");
+                }
+
+                try {
+                    WritableMap selection = task.call();
+
+                    // passing a map to JS consumes it, and the original still goes into the result array
+                    WritableMap copy = new WritableNativeMap();
+                    copy.merge(selection);
+                    event.putMap("selection", copy);
+                    emit(EVENT_ITEM_READY, event);
+
+                    return selection;
+                } catch (Exception ex) {
+                    event.putMap("selection", getItemError(uri, ex));
+                    emit(EVENT_ITEM_READY, event);
+                    throw ex;
+                }
+            }
+        };
+    }
+
+    private void emit(String eventName, WritableMap event) {
+        if (!mReactContext.hasActiveCatalystInstance()) {
+            return;
+        }
+
+        mReactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(eventName, event);
+    }
+
+    private WritableMap getItemError(Uri uri, Throwable cause) {
+        WritableMap error = new WritableNativeMap();
+        error.putString("code", cause instanceof PickerException ? ((PickerException) cause).getCode() : E_NO_IMAGE_DATA_FOUND);
+        error.putString("message", cause.getMessage());
+
+        WritableMap item = new WritableNativeMap();
+        item.putString("uri", uri == null ? null : uri.toString());
+        item.putMap("error", error);
+
+        return item;
+    }
+
+    private WritableMap getVideo(PickerSession session, final String path, String mime, PickerMetrics.Timing timing)
+            throws Exception {
+        WritableMap image = new WritableNativeMap();
+        final MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+
+        try {
+            PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_VIDEO_METADATA, timing);
+            VideoMetadata metadata;
+            try {
+                retriever.setDataSource(path);
+                metadata = VideoMetadata.read(retriever);
+            } finally {
+                span.end();
+            }
+
+            if (metadata.hasSize()) {
+                image.putInt("width", metadata.getDisplayWidth());
+                image.putInt("height", metadata.getDisplayHeight());
+            } else {
+                // no size in the container, fall back to decoding a frame
+                Bitmap bmp = retriever.getFrameAtTime();
+                if (bmp != null) {
+                    image.putInt("width", bmp.getWidth());
+                    image.putInt("height", bmp.getHeight());
+                    bmp.recycle();
+                }
+            }
+
+            image.putDouble("duration", metadata.duration);
+            image.putDouble("bitrate", metadata.bitrate);
+
+            // only decodes a frame on a cache miss, with the retriever that is already open
+            ThumbnailCache.Thumbnail thumbnail = getThumbnail(new File(path), "video-micro", timing, new ThumbnailCache.Loader() {
+                @Override
+                public byte[] load() throws Exception {
+                    Bitmap frame = retriever.getFrameAtTime(-1, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+                    if (frame == null) {
+                        return null;
+                    }
+
+                    return createThumbnail(frame);
+                }
+            });
+            putThumbnail(image, thumbnail);
+
+            if (session.thumbnailCount > 0) {
+                image.putArray("thumbnails", getVideoThumbnails(session, path, retriever, metadata.duration, timing));
+            }
+        } finally {
+            retriever.release();
         }
-        String thumb = getBase64StringFromFile(thumbPath);
-        File fileThumb = new File(thumbPath);
-        fileThumb.delete();
-        image.putString("thumb", thumb);
 
         image.putString("path", "file://" + path);
         image.putString("mime", mime);
         image.putInt("size", (int) new File(path).length());
+        putHash(session, image, path, timing);
 
         return image;
     }
 
-    private String resolveRealPath(Activity activity, Uri uri, boolean isCamera) {
+    /**
+     * Extracts {@code thumbnailCount} frames, evenly spaced over the video or
+     * the one at {@code thumbnailTime}, one after another with the open
+     * {@code retriever}. Frames are cached like other thumbnails.
+     *
+     * @return file URLs of the frames that could be decoded
+     */
+    private WritableArray getVideoThumbnails(PickerSession session, String path, final MediaMetadataRetriever retriever,
+                                             long durationMs, PickerMetrics.Timing timing) throws Exception {
+        long[] times;
+        if (session.thumbnailCount == 1) {
+            times = new long[]{session.thumbnailTime >= 0 ? session.thumbnailTime * 1000 : -1};
+        } else {
+            times = VideoFrames.getStripTimes(durationMs, session.thumbnailCount);
+        }
+
+        final int maxSize = session.thumbnailMaxSize;
+        WritableArray thumbnails = new WritableNativeArray();
+
+        for (final long time : times) {
+            ThumbnailCache.Thumbnail thumbnail = getThumbnail(new File(path), "video-frame-" + maxSize + "-" + time, timing,
+                    new ThumbnailCache.Loader() {
+                        @Override
+                        public byte[] load() throws Exception {
+                            Bitmap frame = VideoFrames.getFrame(retriever, time, maxSize);
+                            return frame == null ? null : compressJpeg(frame);
+                        }
+                    });
+
+            if (thumbnail != null) {
+                thumbnails.pushString("file://" + thumbnail.file.getAbsolutePath());
+            }
+        }
+
+        return thumbnails;
+    }
+
+    /**
+     * Adds {@code hash}, reusing a digest computed by an earlier read of the file.
+     */
+    private void putHash(PickerSession session, WritableMap image, String path, PickerMetrics.Timing timing)
+            throws IOException {
+        if (session.hashAlgorithm == null) {
+            return;
+        }
+
+        PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_HASH, timing);
+        try {
+            image.putString("hash", mHasher.get(new File(path), session.hashAlgorithm));
+        } finally {
+            span.end();
+        }
+    }
+
+    private ThumbnailCache.Thumbnail getThumbnail(File source, String variant, PickerMetrics.Timing timing,
+                                                  ThumbnailCache.Loader loader) throws Exception {
+        PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_THUMBNAIL, timing);
+        ThumbnailCache.Thumbnail thumbnail = null;
+        try {
+            thumbnail = mThumbnails.get(source, variant, loader);
+            return thumbnail;
+        } finally {
+            span.end(thumbnail != null ? thumbnail.bytes.length : 0);
+        }
+    }
+
+    private void putThumbnail(WritableMap image, ThumbnailCache.Thumbnail thumbnail) {
+        if (thumbnail == null) {
+            return;
+        }
+
+        image.putString("thumb", Base64Encoder.encodeToString(thumbnail.bytes));
+        image.putString("thumbPath", "file://" + thumbnail.file.getAbsolutePath());
+    }
+
+    /**
+     * @param width       Width of the stored pixels, or 0 if unknown, e.g. for rows MediaStore hasn't scanned yet
+     * @param height      Height of the stored pixels, or 0 if unknown
+     * @param orientation EXIF orientation; the thumbnail is turned upright like the image is displayed
+     */
+    private byte[] createImageThumbnail(String path, int width, int height, int orientation) {
+        if (width <= 0 || height <= 0) {
+            // without the size the sample size would be 1, i.e. a full-size decode
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(path, bounds);
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+                return null;
+            }
+
+            width = bounds.outWidth;
+            height = bounds.outHeight;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = getSampleSize(width, height, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+
+        Bitmap bitmap = mBitmaps.decodeFile(path, options,
+                divideRoundingUp(width, options.inSampleSize), divideRoundingUp(height, options.inSampleSize));
+        if (bitmap == null) {
+            return null;
+        }
+
+        if (!ImageMetadata.isUpright(orientation)) {
+            // cheap at the sampled size, ahead of the center crop
+            Bitmap upright = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(),
+                    ImageMetadata.getUprightMatrix(orientation), true);
+            if (upright != bitmap) {
+                mBitmaps.put(bitmap);
+                bitmap = upright;
+            }
+        }
+
+        return createThumbnail(bitmap);
+    }
+
+    /**
+     * Thumbnails of images are keyed by orientation too, so a change in how
+     * the orientation is known never serves a thumbnail turned the other way.
+     */
+    private static String getImageThumbnailVariant(int orientation) {
+        return "image-micro-" + orientation;
+    }
+
+    /**
+     * Crops and scales {@code source} to the thumbnail size and compresses it.
+     * Both bitmaps go back to the pool afterwards.
+     */
+    private byte[] createThumbnail(Bitmap source) {
+        Bitmap thumbnail = ThumbnailUtils.extractThumbnail(source, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+        try {
+            return compressJpeg(thumbnail);
+        } finally {
+            mBitmaps.put(source);
+        }
+    }
+
+    /**
+     * Compresses {@code bitmap} and hands it back to the pool.
+     */
+    private byte[] compressJpeg(Bitmap bitmap) {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, output);
+
+            return output.toByteArray();
+        } finally {
+            mBitmaps.put(bitmap);
+        }
+    }
+
+    private static int divideRoundingUp(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * @return largest power of two that keeps the decoded size at or above the requested size
+     */
+    static int getSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+
+        return sampleSize;
+    }
+
+    private String resolveRealPath(PickerSession session, Uri uri, boolean isCamera) {
         String path;
 
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
-            path = RealPathUtil.getRealPathFromURI(activity, uri);
+            path = mPathResolver.resolve(uri);
         } else {
             if (isCamera) {
-                Uri imageUri = Uri.parse(mCurrentPhotoPath);
+                Uri imageUri = Uri.parse(session.currentPhotoPath);
                 path = imageUri.getPath();
             } else {
-                path = RealPathUtil.getRealPathFromURI(activity, uri);
+                path = mPathResolver.resolve(uri);
             }
         }
 
         return path;
     }
 
-    private WritableMap getImage(String path) throws Exception {
+    /**
+     * @param encoded Whether the file already has the session's output encoding, e.g. crop results
+     */
+    private WritableMap getImage(PickerSession session, final String path, MediaStoreBatchResolver.MediaInfo info,
+                                 boolean encoded, PickerMetrics.Timing timing) throws Exception {
         WritableMap image = new WritableNativeMap();
 
         if (path.startsWith("http://") || path.startsWith("https://")) {
             throw new Exception("Cannot select remote files");
         }
 
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inJustDecodeBounds = true;
+        int width;
+        int height;
+        String mime;
+        long size;
+        int orientation;
 
-        BitmapFactory.decodeFile(path, options);
+        boolean reencode;
+        ImageMetadata metadata = null;
+        // the bounds decode and the EXIF read share one open file
+        FileInputStream in = null;
+        try {
+            if (info != null && info.hasImageSize() && info.mime.startsWith("image/") && info.isCurrent(new File(path))) {
+                // MediaStore already knows, no need to decode the file
+                width = info.width;
+                height = info.height;
+                mime = info.mime;
+                size = info.size;
+                orientation = ImageMetadata.fromDegrees(info.orientation);
+            } else {
+                // the bounds decode also rejects files that aren't images
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inJustDecodeBounds = true;
 
-        if (options.outMimeType == null || options.outWidth == 0 || options.outHeight == 0) {
-            throw new Exception("Invalid image selected");
+                PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_BOUNDS_DECODE, timing);
+                try {
+                    in = new FileInputStream(path);
+                    BitmapFactory.decodeFileDescriptor(in.getFD(), null, options);
+                } finally {
+                    span.end();
+                }
+
+                if (options.outMimeType == null || options.outWidth == 0 || options.outHeight == 0) {
+                    throw new Exception("Invalid image selected");
+                }
+
+                width = options.outWidth;
+                height = options.outHeight;
+                mime = options.outMimeType;
+                size = in.getChannel().size();
+                orientation = -1;
+            }
+
+            reencode = !encoded && (session.compressQuality >= 0
+                    || (session.compressFormat != null && !getMimeType(session.compressFormat).equals(mime)));
+
+            if (orientation < 0 || session.includeExif || session.normalizeOrientation || reencode) {
+                PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_EXIF, timing);
+                try {
+                    if (in != null) {
+                        in.getChannel().position(0);
+                        metadata = ImageMetadata.read(in.getFD(), path);
+                    } else {
+                        metadata = ImageMetadata.read(path);
+                    }
+                } finally {
+                    span.end();
+                }
+                orientation = metadata.orientation;
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
         }
 
-        image.putString("pickType", pickType);
-        image.putString("path", "file://" + path);
-        image.putInt("width", options.outWidth);
-        image.putInt("height", options.outHeight);
-        image.putString("mime", options.outMimeType);
-        image.putInt("size", (int) new File(path).length());
+        final String outputPath;
+        if (reencode || (session.normalizeOrientation && !metadata.isUpright())) {
+            // re-encoding drops the orientation tag, so the pixels are always turned upright
+            Bitmap.CompressFormat format = session.compressFormat != null ? session.compressFormat : getSourceFormat(mime);
+            PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_REENCODE, timing);
+            File output = null;
+            try {
+                output = reencode(path, metadata, format,
+                        session.compressQuality >= 0 ? session.compressQuality : DEFAULT_COMPRESS_QUALITY);
+                session.addTempFile(output);
+            } finally {
+                span.end(output != null ? output.length() : 0);
+            }
+            if (metadata.isTransposed()) {
+                int storedWidth = width;
+                width = height;
+                height = storedWidth;
+            }
+
+            // ExifInterface can only write JPEG files
+            metadata = format == Bitmap.CompressFormat.JPEG
+                    ? metadata.writeUpright(output.getAbsolutePath()) : metadata.upright();
+            orientation = metadata.orientation;
+            outputPath = output.getAbsolutePath();
+            mime = getMimeType(format);
+            size = output.length();
+        } else {
+            outputPath = path;
+        }
+
+        // dimensions as the image is displayed
+        boolean transposed = ImageMetadata.isTransposed(orientation);
+        image.putString("pickType", session.pickType);
+        image.putString("path", "file://" + outputPath);
+        image.putInt("width", transposed ? height : width);
+        image.putInt("height", transposed ? width : height);
+        image.putString("mime", mime);
+        image.putInt("size", (int) size);
 
-        if (includeBase64) {
-            image.putString("data", getBase64StringFromFile(path));
+        if (session.includeExif) {
+            image.putMap("exif", metadata.toMap());
         }
 
+        if (session.includeThumbnail) {
+            final int storedWidth = width;
+            final int storedHeight = height;
+            final int storedOrientation = orientation;
+            putThumbnail(image, getThumbnail(new File(outputPath), getImageThumbnailVariant(orientation), timing,
+                    new ThumbnailCache.Loader() {
+                        @Override
+                        public byte[] load() throws Exception {
+                            return createImageThumbnail(outputPath, storedWidth, storedHeight, storedOrientation);
+                        }
+                    }));
+        }
+
+        if (session.includeBase64) {
+            if (session.streamBase64) {
+                checkBase64Size(new File(outputPath), session.maxBase64Bytes);
+                image.putString("dataStreamId", mBase64Streams.open(new File(outputPath), session.base64ChunkSize));
+            } else {
+                image.putString("data", getBase64StringFromFile(outputPath, session.maxBase64Bytes, session.hashAlgorithm, timing));
+            }
+        }
+
+        putHash(session, image, outputPath, timing);
+
         return image;
     }
 
-    private void configureCropperColors(UCrop.Options options) {
-        int color = Color.parseColor(cropperTintColor);
+    /**
+     * Decodes the image at {@code path} and writes it to the tmp directory in
+     * {@code format}, with the pixels turned as {@code metadata}'s orientation says.
+     */
+    private File reencode(String path, ImageMetadata metadata, Bitmap.CompressFormat format, int quality) throws IOException {
+        try {
+            mReencodePermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Re-encoding of " + path + " was cancelled");
+        }
+
+        try {
+            return reencodeWithPermit(path, metadata, format, quality);
+        } finally {
+            mReencodePermits.release();
+        }
+    }
+
+    private File reencodeWithPermit(String path, ImageMetadata metadata, Bitmap.CompressFormat format, int quality)
+            throws IOException {
+        Bitmap upright;
+        try {
+            Bitmap source = BitmapFactory.decodeFile(path);
+            if (source == null) {
+                throw new IOException("Cannot decode " + path);
+            }
+
+            upright = Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(),
+                    metadata.getUprightMatrix(), true);
+            if (upright != source) {
+                source.recycle();
+            }
+        } catch (OutOfMemoryError e) {
+            throw new IOException("Image is too large to re-encode: " + path);
+        }
+
+        try {
+            return writeBitmap(upright, "encoded-", format, quality);
+        } finally {
+            upright.recycle();
+        }
+    }
+
+    /**
+     * Decodes only the stored pixels under the displayed rectangle {@code x},
+     * {@code y}, {@code width}, {@code height}, subsampled to about the output
+     * size, and writes them upright and scaled to {@code outWidth} x
+     * {@code outHeight} into the tmp directory.
+     */
+    /**
+     * @param format Encoding of the result, or null for the one of {@code path}
+     */
+    private WritableMap cropRegion(String path, int x, int y, int width, int height, int outWidth, int outHeight,
+                                   Bitmap.CompressFormat format, int quality) throws Exception {
+        if (format == null) {
+            format = getSourceFormat(getMimeType(path));
+        }
+
+        PickerMetrics.Span span = mMetrics.start(PickerMetrics.STAGE_REGION_CROP, null);
+        BitmapRegionDecoder decoder = null;
+        Bitmap region = null;
+        Bitmap output = null;
+
+        try {
+            ImageMetadata metadata = ImageMetadata.read(path);
+            decoder = BitmapRegionDecoder.newInstance(path, false);
+            boolean transposed = metadata.isTransposed();
+            int displayedWidth = transposed ? decoder.getHeight() : decoder.getWidth();
+            int displayedHeight = transposed ? decoder.getWidth() : decoder.getHeight();
+            if (x + width > displayedWidth || y + height > displayedHeight) {
+                throw new PickerException(E_INVALID_OPTIONS, "Crop rectangle exceeds the "
+                        + displayedWidth + "x" + displayedHeight + " image");
+            }
+
+            Rect stored = metadata.getStoredRect(x, y, width, height, decoder.getWidth(), decoder.getHeight());
+            int storedOutWidth = transposed ? outHeight : outWidth;
+            int storedOutHeight = transposed ? outWidth : outHeight;
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = getSampleSize(stored.width(), stored.height(), storedOutWidth, storedOutHeight);
+            region = mBitmaps.decodeRegion(decoder, stored, options,
+                    divideRoundingUp(stored.width(), options.inSampleSize),
+                    divideRoundingUp(stored.height(), options.inSampleSize));
+            if (region == null) {
+                throw new IOException("Cannot decode " + path);
+            }
+
+            output = region;
+            if (!metadata.isUpright() || region.getWidth() != storedOutWidth || region.getHeight() != storedOutHeight) {
+                Matrix matrix = metadata.getUprightMatrix();
+                // scaled in stored orientation, before the matrix turns it
+                matrix.preScale(storedOutWidth / (float) region.getWidth(), storedOutHeight / (float) region.getHeight());
+                output = Bitmap.createBitmap(region, 0, 0, region.getWidth(), region.getHeight(), matrix, true);
+            }
+
+            File target = writeBitmap(output, "cropped-", format, quality);
+
+            WritableMap image = new WritableNativeMap();
+            image.putString("path", "file://" + target.getAbsolutePath());
+            image.putInt("width", output.getWidth());
+            image.putInt("height", output.getHeight());
+            image.putString("mime", getMimeType(format));
+            image.putInt("size", (int) target.length());
+            return image;
+        } catch (OutOfMemoryError e) {
+            throw new IOException("Region is too large to crop: " + path);
+        } finally {
+            if (decoder != null) {
+                decoder.recycle();
+            }
+            // without turning or scaling the output is the region itself
+            if (output != region) {
+                mBitmaps.put(output);
+            }
+            mBitmaps.put(region);
+            span.end();
+        }
+    }
+
+    /**
+     * @return new file in the tmp directory holding {@code bitmap} encoded in {@code format}
+     */
+    private File writeBitmap(Bitmap bitmap, String prefix, Bitmap.CompressFormat format, int quality) throws IOException {
+        File target = new File(getTmpDir(), prefix + UUID.randomUUID().toString() + getExtension(format));
+        FileOutputStream output = new FileOutputStream(target);
+        boolean written = false;
+
+        try {
+            written = bitmap.compress(format, quality, output);
+        } finally {
+            output.close();
+
+            if (!written) {
+                target.delete();
+            }
+        }
+
+        if (!written) {
+            throw new IOException("Cannot write " + target);
+        }
+
+        mTempStore.retain(target);
+        return target;
+    }
+
+    private static String getMimeType(Bitmap.CompressFormat format) {
+        switch (format) {
+            case PNG:
+                return "image/png";
+            case WEBP:
+                return "image/webp";
+            default:
+                return "image/jpeg";
+        }
+    }
+
+    /**
+     * @return the format images of {@code mime} are written in when no format
+     * was asked for: their own, or JPEG if it cannot be encoded
+     */
+    private static Bitmap.CompressFormat getSourceFormat(String mime) {
+        if ("image/png".equals(mime)) {
+            return Bitmap.CompressFormat.PNG;
+        }
+
+        if ("image/webp".equals(mime)) {
+            return Bitmap.CompressFormat.WEBP;
+        }
+
+        return Bitmap.CompressFormat.JPEG;
+    }
+
+    private static String getExtension(Bitmap.CompressFormat format) {
+        switch (format) {
+            case PNG:
+                return ".png";
+            case WEBP:
+                return ".webp";
+            default:
+                return ".jpg";
+        }
+    }
+
+    private void configureCropperColors(PickerSession session, UCrop.Options options) {
+        int color = Color.parseColor(session.cropperTintColor);
         options.setToolbarColor(color);
         options.setStatusBarColor(color);
-        if (cropperTintColor.equals(DEFAULT_TINT)) {
+        if (session.cropperTintColor.equals(PickerSession.DEFAULT_TINT)) {
             /*
             Default tint is grey => use a more flashy color that stands out more as the call to action
             Here we use 'Light Blue 500' from https://material.google.com/style/color.html#color-color-palette
@@ -582,117 +1746,235 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
 
     }
 
-    private void startCropping(Activity activity, Uri uri) {
+    private void startCropping(PickerSession session, Activity activity, Uri uri) {
+        Bitmap.CompressFormat format = session.compressFormat != null ? session.compressFormat : Bitmap.CompressFormat.JPEG;
         UCrop.Options options = new UCrop.Options();
-        options.setCompressionFormat(Bitmap.CompressFormat.JPEG);
-        configureCropperColors(options);
+        options.setCompressionFormat(format);
+        if (session.compressQuality >= 0) {
+            options.setCompressionQuality(session.compressQuality);
+        }
+        configureCropperColors(session, options);
+
+        // the cropper's result belongs to this session as well
+        mActiveSession = session;
+        session.uiStartedAt = System.nanoTime();
 
-        UCrop.of(uri, Uri.fromFile(new File(this.getTmpDir(), UUID.randomUUID().toString() + ".jpg")))
-                .withMaxResultSize(width, height)
-                .withAspectRatio(width, height)
+        File output = new File(this.getTmpDir(), UUID.randomUUID().toString() + getExtension(format));
+        mTempStore.retain(output);
+
+        UCrop.of(uri, Uri.fromFile(output))
+                .withMaxResultSize(session.width, session.height)
+                .withAspectRatio(session.width, session.height)
                 .withOptions(options)
                 .start(activity);
     }
 
-    private void imagePickerResult(Activity activity, final int requestCode, final int resultCode, final Intent data) {
-        if (mPickerPromise == null) {
+    /**
+     * Records the time since {@code session}'s last activity was started.
+     */
+    private void recordUiTime(PickerSession session, String stage) {
+        if (session.uiStartedAt != 0) {
+            mMetrics.record(stage, System.nanoTime() - session.uiStartedAt, 0, null);
+        }
+    }
+
+    private void imagePickerResult(final Activity activity, final int requestCode, final int resultCode, final Intent data) {
+        final PickerSession session = takeActiveSession();
+        if (session == null) {
             return;
         }
 
+        recordUiTime(session, PickerMetrics.STAGE_LAUNCH);
+
+        final PickerPromise promise = session.promise;
+
         if (resultCode == Activity.RESULT_CANCELED) {
-            mPickerPromise.reject(E_PICKER_CANCELLED_KEY, E_PICKER_CANCELLED_MSG);
+            promise.reject(E_PICKER_CANCELLED_KEY, E_PICKER_CANCELLED_MSG);
         } else if (resultCode == Activity.RESULT_OK) {
-            if (multiple) {
+            if (session.multiple) {
                 ClipData clipData = data.getClipData();
-                WritableArray result = new WritableNativeArray();
+                final List<Uri> uris = new ArrayList<>();
 
-                try {
-                    // only one image selected
-                    if (clipData == null) {
-                        result.pushMap(getSelection(activity, data.getData(), false));
-                    } else {
-                        for (int i = 0; i < clipData.getItemCount(); i++) {
-                            result.pushMap(getSelection(activity, clipData.getItemAt(i).getUri(), false));
-                        }
+                // only one image selected
+                if (clipData == null) {
+                    uris.add(data.getData());
+                } else {
+                    for (int i = 0; i < clipData.getItemCount(); i++) {
+                        uris.add(clipData.getItemAt(i).getUri());
                     }
-
-                    mPickerPromise.resolve(result);
-                } catch (Exception ex) {
-                    mPickerPromise.reject(E_NO_IMAGE_DATA_FOUND, ex.getMessage());
                 }
 
+                process(session, new Callable<WritableArray>() {
+                    @Override
+                    public WritableArray call() throws Exception {
+                        return getSelections(session, activity, uris);
+                    }
+                });
             } else {
-                Uri uri = data.getData();
+                final Uri uri = data.getData();
 
                 if (uri == null) {
-                    mPickerPromise.reject(E_NO_IMAGE_DATA_FOUND, "Cannot resolve image url");
+                    promise.reject(E_NO_IMAGE_DATA_FOUND, "Cannot resolve image url");
+                    return;
                 }
 
-                if (cropping) {
-                    startCropping(activity, uri);
+                if (session.cropping) {
+                    startCropping(session, activity, uri);
                 } else {
-                    try {
-                        mPickerPromise.resolve(getSelection(activity, uri, false));
-                    } catch (Exception ex) {
-                        mPickerPromise.reject(E_NO_IMAGE_DATA_FOUND, ex.getMessage());
-                    }
+                    process(session, new Callable<WritableMap>() {
+                        @Override
+                        public WritableMap call() throws Exception {
+                            return getSelection(session, activity, uri, false);
+                        }
+                    });
                 }
             }
+        } else {
+            // e.g. RESULT_FIRST_USER from some galleries; settling also frees the request id
+            promise.reject(E_NO_IMAGE_DATA_FOUND, "Picker returned result code " + resultCode);
         }
     }
 
-    private void cameraPickerResult(Activity activity, final int requestCode, final int resultCode, final Intent data) {
-        if (mPickerPromise == null) {
+    private void cameraPickerResult(final Activity activity, final int requestCode, final int resultCode, final Intent data) {
+        final PickerSession session = takeActiveSession();
+        if (session == null) {
             return;
         }
 
+        recordUiTime(session, PickerMetrics.STAGE_LAUNCH);
+
+        final PickerPromise promise = session.promise;
+
         if (resultCode == Activity.RESULT_CANCELED) {
-            mPickerPromise.reject(E_PICKER_CANCELLED_KEY, E_PICKER_CANCELLED_MSG);
+            deleteUnusedCapture(session);
+            if (!finishCapturesIfAny(session)) {
+                promise.reject(E_PICKER_CANCELLED_KEY, E_PICKER_CANCELLED_MSG);
+            }
         } else if (resultCode == Activity.RESULT_OK) {
-            Uri uri = mCameraCaptureURI;
+            final Uri uri = session.cameraCaptureUri;
 
             if (uri == null) {
-                mPickerPromise.reject(E_NO_IMAGE_DATA_FOUND, "Cannot resolve image url");
+                promise.reject(E_NO_IMAGE_DATA_FOUND, "Cannot resolve image url");
                 return;
             }
 
-            if (cropping) {
-                UCrop.Options options = new UCrop.Options();
-                options.setCompressionFormat(Bitmap.CompressFormat.JPEG);
-                startCropping(activity, uri);
+            if (session.multiple) {
+                addCapture(session, activity);
+            } else if (session.cropping) {
+                startCropping(session, activity, uri);
             } else {
-                try {
-                    Uri vUri = data.getData();
-                    android.util.Log.v("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ", "vUri: " + vUri.toString());
-                    android.util.Log.v("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ", "cameraPickerResult: (vUri)" + vUri);
-                    android.util.Log.v("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ", "uri: " + uri.getPath());
-
-                    mPickerPromise.resolve(getSelection(activity, uri, true));
-                } catch (Exception ex) {
-                    mPickerPromise.reject(E_NO_IMAGE_DATA_FOUND, ex.getMessage());
-                }
+                process(session, new Callable<WritableMap>() {
+                    @Override
+                    public WritableMap call() throws Exception {
+                        return getSelection(session, activity, uri, true);
+                    }
+                });
+            }
+        } else {
+            deleteUnusedCapture(session);
+            if (!finishCapturesIfAny(session)) {
+                promise.reject(E_NO_IMAGE_DATA_FOUND, "Camera returned result code " + resultCode);
             }
         }
     }
 
-    private void croppingResult(Activity activity, final int requestCode, final int resultCode, final Intent data) {
-        if (mPickerPromise == null) {
+    /**
+     * Queues the shot that was just taken for processing and opens the camera
+     * again right away, so processing overlaps with taking the next shot.
+     */
+    private void addCapture(final PickerSession session, Activity activity) {
+        final String path = Uri.parse(session.currentPhotoPath).getPath();
+        Uri uri = Uri.fromFile(new File(path));
+        Future<WritableMap> capture = mEngine.submitItem(reportWhenReady(session, session.captures.size(), -1, uri,
+                new Callable<WritableMap>() {
+                    @Override
+                    public WritableMap call() throws Exception {
+                        return getCapture(session, path);
+                    }
+                }));
+        session.captures.add(capture);
+        session.track(capture);
+        session.captureUris.add(uri);
+
+        mActiveSession = session;
+        initiateCamera(session, activity);
+    }
+
+    /**
+     * Ends a multiple camera session that already has shots, e.g. because the
+     * camera could not be opened again.
+     *
+     * @return false if there are no shots to resolve with
+     */
+    private boolean finishCapturesIfAny(PickerSession session) {
+        if (!session.multiple || session.captures.isEmpty()) {
+            return false;
+        }
+
+        finishCaptures(session);
+        return true;
+    }
+
+    /**
+     * Deletes the file created for the current shot if the camera never wrote
+     * to it. Shots that were taken stay in the user's pictures.
+     */
+    private static void deleteUnusedCapture(PickerSession session) {
+        if (session.currentPhotoPath == null) {
             return;
         }
 
+        File unused = new File(Uri.parse(session.currentPhotoPath).getPath());
+        if (unused.length() == 0) {
+            unused.delete();
+        }
+    }
+
+    /**
+     * Ends a multiple camera session once the user leaves the camera,
+     * resolving with all shots in the order they were taken.
+     */
+    private void finishCaptures(final PickerSession session) {
+        // the camera was opened for one more shot that never came
+        deleteUnusedCapture(session);
+
+        final List<Uri> uris = new ArrayList<>(session.captureUris);
+        final List<Future<WritableMap>> futures = new ArrayList<>(session.captures);
+        process(session, new Callable<WritableArray>() {
+            @Override
+            public WritableArray call() throws Exception {
+                return collectSelections(session, uris, futures);
+            }
+        });
+    }
+
+    private void croppingResult(final Activity activity, final int requestCode, final int resultCode, final Intent data) {
+        final PickerSession session = takeActiveSession();
+        if (session == null) {
+            return;
+        }
+
+        recordUiTime(session, PickerMetrics.STAGE_CROP);
+
+        final PickerPromise promise = session.promise;
+
         if (data != null) {
             final Uri resultUri = UCrop.getOutput(data);
             if (resultUri != null) {
-                try {
-                    mPickerPromise.resolve(getSelection(activity, resultUri, false));
-                } catch (Exception ex) {
-                    mPickerPromise.reject(E_NO_IMAGE_DATA_FOUND, ex.getMessage());
-                }
+                process(session, new Callable<WritableMap>() {
+                    @Override
+                    public WritableMap call() throws Exception {
+                        PickerMetrics.Timing timing = session.includeTiming ? new PickerMetrics.Timing() : null;
+
+                        // uCrop already wrote the requested format and quality
+                        return putTiming(getImage(session, resultUri.getPath(), null, true, timing), timing);
+                    }
+                });
             } else {
-                mPickerPromise.reject(E_NO_IMAGE_DATA_FOUND, "Cannot find image data");
+                promise.reject(E_NO_IMAGE_DATA_FOUND, "Cannot find image data");
             }
         } else {
-            mPickerPromise.reject(E_PICKER_CANCELLED_KEY, E_PICKER_CANCELLED_MSG);
+            promise.reject(E_PICKER_CANCELLED_KEY, E_PICKER_CANCELLED_MSG);
         }
     }
 
@@ -704,7 +1986,11 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
             cameraPickerResult(activity, requestCode, resultCode, data);
         } else if (requestCode == UCrop.REQUEST_CROP) {
             croppingResult(activity, requestCode, resultCode, data);
+        } else {
+            return;
         }
+
+        mTempStore.scheduleEviction();
     }
 
     @Override
@@ -716,14 +2002,14 @@ class PickerModule extends ReactContextBaseJavaModule implements ActivityEventLi
                 || mReactContext.getPackageManager().hasSystemFeature(PackageManager.FEATURE_CAMERA_ANY);
     }
 
-    private File createImageFile() throws IOException {
+    private File createImageFile(PickerSession session) throws IOException {
         String imageFileName = "image-" + UUID.randomUUID().toString();
         File path = Environment.getExternalStoragePublicDirectory(
                 Environment.DIRECTORY_PICTURES);
-        File image = File.createTempFile(imageFileName, (pickVideo ? ".mp4" : ".jpg"), path);
+        File image = File.createTempFile(imageFileName, (session.pickVideo ? ".mp4" : ".jpg"), path);
 
         // Save a file: path for use with ACTION_VIEW intents
-        mCurrentPhotoPath = "file:" + image.getAbsolutePath();
+        session.currentPhotoPath = "file:" + image.getAbsolutePath();
 
         return image;
     }
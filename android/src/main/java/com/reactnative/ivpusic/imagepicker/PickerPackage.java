@@ -15,6 +15,19 @@ import java.util.List;
  */
 public class PickerPackage implements ReactPackage {
 
+    private final int processingThreads;
+
+    public PickerPackage() {
+        this(ProcessingEngine.defaultThreadCount());
+    }
+
+    /**
+     * @param processingThreads Number of worker threads used to process picked media.
+     */
+    public PickerPackage(int processingThreads) {
+        this.processingThreads = processingThreads;
+    }
+
     @Override
     public List<Class<? extends JavaScriptModule>> createJSModules() {
         return Collections.emptyList();
@@ -28,7 +41,7 @@ public class PickerPackage implements ReactPackage {
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
         List<NativeModule> modules = new ArrayList<>();
-        modules.add(new PickerModule(reactContext));
+        modules.add(new PickerModule(reactContext, processingThreads));
 
         return modules;
     }
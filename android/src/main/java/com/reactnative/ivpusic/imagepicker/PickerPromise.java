@@ -0,0 +1,80 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import com.facebook.react.bridge.Promise;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps a React promise so it is settled exactly once, no matter which
+ * thread (UI or processing worker) gets to it first.
+ */
+class PickerPromise {
+
+    private final Promise promise;
+    private final Runnable onSettled;
+    private final AtomicBoolean settled = new AtomicBoolean(false);
+
+    PickerPromise(Promise promise) {
+        this(promise, null);
+    }
+
+    /**
+     * @param onSettled Runs once, right before the promise is resolved or rejected.
+     */
+    PickerPromise(Promise promise, Runnable onSettled) {
+        this.promise = promise;
+        this.onSettled = onSettled;
+    }
+
+    boolean isSettled() {
+        return settled.get();
+    }
+
+    boolean resolve(Object value) {
+        if (!settle()) {
+            return false;
+        }
+
+        promise.resolve(value);
+        return true;
+    }
+
+    boolean reject(String code, String message) {
+        if (!settle()) {
+            return false;
+        }
+
+        promise.reject(code, message);
+        return true;
+    }
+
+    boolean reject(String code, Throwable e) {
+        if (!settle()) {
+            return false;
+        }
+
+        promise.reject(code, e);
+        return true;
+    }
+
+    boolean reject(String code, String message, Throwable e) {
+        if (!settle()) {
+            return false;
+        }
+
+        promise.reject(code, message, e);
+        return true;
+    }
+
+    private boolean settle() {
+        if (!settled.compareAndSet(false, true)) {
+            return false;
+        }
+
+        if (onSettled != null) {
+            onSettled.run();
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,263 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+/**
+ * State of one picker request: its options, camera capture file and promise.
+ * Every openPicker/openCamera call gets its own session, so a new request can
+ * open the picker while an earlier selection is still being processed.
+ */
+class PickerSession {
+
+    //Default colors from from https://material.google.com/style/color.html#
+
+    //Grey 800
+    static final String DEFAULT_TINT = "#424242";
+
+    static final int DEFAULT_WIDTH = 200;
+    static final int DEFAULT_HEIGHT = 200;
+    static final int DEFAULT_THUMBNAIL_MAX_SIZE = 256;
+    static final int MAX_THUMBNAIL_COUNT = 100;
+
+    final String id;
+    final PickerPromise promise;
+    final String pickType;
+
+    final boolean pickVideo;
+    final boolean cropping;
+    final boolean multiple;
+    final boolean includeBase64;
+    final boolean perItemErrors;
+    final boolean includeThumbnail;
+    final boolean includeExif;
+    final boolean normalizeOrientation;
+    final boolean includeTiming;
+    final boolean progressive;
+    /**
+     * Processing deadline in milliseconds, 0 for none
+     */
+    final long timeoutMs;
+    /**
+     * {@link java.security.MessageDigest} algorithm of {@code includeHash}, or null
+     */
+    final String hashAlgorithm;
+    /**
+     * Encoding of crop results and re-encoded picks; null keeps uncropped picks as they are
+     */
+    final Bitmap.CompressFormat compressFormat;
+    /**
+     * 0 to 100, or -1 for the default
+     */
+    final int compressQuality;
+    /**
+     * Video frames to extract into {@code thumbnails}, 0 for none
+     */
+    final int thumbnailCount;
+    final int thumbnailMaxSize;
+    /**
+     * Milliseconds, or -1 for any representative frame
+     */
+    final long thumbnailTime;
+    final long maxBase64Bytes;
+    final boolean streamBase64;
+    final int base64ChunkSize;
+    final int width;
+    final int height;
+    final String cropperTintColor;
+
+    // set on the UI thread before the capture intent is started
+    Uri cameraCaptureUri;
+    String currentPhotoPath;
+    // System.nanoTime() when the picker, camera or cropper activity was started
+    volatile long uiStartedAt;
+    // shots of a multiple camera session and their processing, in order; UI thread only
+    final List<Uri> captureUris = new ArrayList<>();
+    final List<Future<WritableMap>> captures = new ArrayList<>();
+
+    // interrupted and deleted by cancel()
+    private final List<Future<?>> work = new ArrayList<>();
+    private final List<File> tempFiles = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * @param registry Pending sessions by id; this session removes itself once its promise is settled.
+     * @throws IllegalArgumentException if an option has an unsupported value
+     */
+    PickerSession(String id, ReadableMap options, String pickType, Promise promise,
+                  final ConcurrentMap<String, PickerSession> registry) {
+        this.id = id;
+        this.pickType = pickType;
+        this.promise = new PickerPromise(promise, new Runnable() {
+            @Override
+            public void run() {
+                registry.remove(PickerSession.this.id, PickerSession.this);
+                stopWork();
+            }
+        });
+
+        pickVideo = options.hasKey("mediaType") && "video".equals(options.getString("mediaType"));
+        cropping = !pickVideo && options.hasKey("cropping") && options.getBoolean("cropping");
+        multiple = options.hasKey("multiple") && options.getBoolean("multiple");
+        includeBase64 = options.hasKey("includeBase64") && options.getBoolean("includeBase64");
+        perItemErrors = options.hasKey("perItemErrors") && options.getBoolean("perItemErrors");
+        includeThumbnail = options.hasKey("includeThumbnail") && options.getBoolean("includeThumbnail");
+        includeExif = options.hasKey("includeExif") && options.getBoolean("includeExif");
+        normalizeOrientation = options.hasKey("normalizeOrientation") && options.getBoolean("normalizeOrientation");
+        includeTiming = options.hasKey("includeTiming") && options.getBoolean("includeTiming");
+        progressive = options.hasKey("progressive") && options.getBoolean("progressive");
+        timeoutMs = options.hasKey("timeoutMs") ? (long) options.getDouble("timeoutMs") : 0;
+        if (timeoutMs < 0) {
+            throw new IllegalArgumentException("timeoutMs must not be negative: " + timeoutMs);
+        }
+
+        if (options.hasKey("includeHash") && options.getString("includeHash") != null) {
+            hashAlgorithm = FileDigests.algorithmFor(options.getString("includeHash"));
+            if (hashAlgorithm == null) {
+                throw new IllegalArgumentException("Unsupported includeHash value: " + options.getString("includeHash"));
+            }
+        } else {
+            hashAlgorithm = null;
+        }
+
+        compressFormat = options.hasKey("compressImageFormat") ? parseFormat(options.getString("compressImageFormat")) : null;
+        if (options.hasKey("compressImageQuality")) {
+            double quality = options.getDouble("compressImageQuality");
+            if (quality < 0 || quality > 1) {
+                throw new IllegalArgumentException("compressImageQuality must be between 0 and 1: " + quality);
+            }
+
+            compressQuality = (int) Math.round(quality * 100);
+        } else {
+            compressQuality = -1;
+        }
+        thumbnailMaxSize = options.hasKey("thumbnailMaxSize") ? options.getInt("thumbnailMaxSize") : DEFAULT_THUMBNAIL_MAX_SIZE;
+        thumbnailTime = options.hasKey("thumbnailTime") ? (long) options.getDouble("thumbnailTime") : -1;
+        if (options.hasKey("thumbnailCount")) {
+            thumbnailCount = options.getInt("thumbnailCount");
+        } else {
+            // asking for a size or time alone means one frame
+            thumbnailCount = options.hasKey("thumbnailMaxSize") || options.hasKey("thumbnailTime") ? 1 : 0;
+        }
+        if (thumbnailMaxSize <= 0 || thumbnailCount < 0 || thumbnailCount > MAX_THUMBNAIL_COUNT) {
+            throw new IllegalArgumentException("thumbnailMaxSize must be positive and thumbnailCount between 0 and "
+                    + MAX_THUMBNAIL_COUNT);
+        }
+
+        maxBase64Bytes = options.hasKey("maxBase64Bytes") ? (long) options.getDouble("maxBase64Bytes") : 0;
+        streamBase64 = options.hasKey("streamBase64") && options.getBoolean("streamBase64");
+        base64ChunkSize = options.hasKey("base64ChunkSize") ? options.getInt("base64ChunkSize") : Base64StreamRegistry.DEFAULT_CHUNK_SIZE;
+        width = options.hasKey("width") ? options.getInt("width") : DEFAULT_WIDTH;
+        height = options.hasKey("height") ? options.getInt("height") : DEFAULT_HEIGHT;
+        cropperTintColor = options.hasKey("cropperTintColor") ? options.getString("cropperTintColor") : DEFAULT_TINT;
+    }
+
+    /**
+     * Keeps {@code future} to be interrupted if the session is cancelled,
+     * or interrupts it right away if it already settled.
+     */
+    void track(Future<?> future) {
+        if (future == null) {
+            return;
+        }
+
+        boolean interrupt;
+        synchronized (this) {
+            if (!promise.isSettled()) {
+                work.add(future);
+                return;
+            }
+
+            interrupt = cancelled;
+        }
+
+        future.cancel(interrupt);
+    }
+
+    /**
+     * Remembers a file written for this session only, to delete it if the session is cancelled.
+     */
+    void addTempFile(File file) {
+        synchronized (this) {
+            if (!cancelled) {
+                tempFiles.add(file);
+                return;
+            }
+        }
+
+        file.delete();
+    }
+
+    /**
+     * Rejects the promise with {@code code}, interrupts the session's
+     * processing and deletes the files it wrote so far.
+     *
+     * @return false if the promise was already settled
+     */
+    boolean cancel(String code, String message) {
+        List<File> files;
+        synchronized (this) {
+            // work and files are only touched under this lock, so no one sees the
+            // session as cancelled unless the reject wins over a concurrent resolve
+            cancelled = true;
+            if (!promise.reject(code, message)) {
+                cancelled = false;
+                return false;
+            }
+
+            files = new ArrayList<>(tempFiles);
+            tempFiles.clear();
+        }
+
+        for (File file : files) {
+            file.delete();
+        }
+
+        return true;
+    }
+
+    /**
+     * Drops work that is no longer needed once the promise is settled, e.g.
+     * the timer of {@code timeoutMs}. Running work is only interrupted if the
+     * session was cancelled; otherwise it is what just settled the promise.
+     */
+    private void stopWork() {
+        List<Future<?>> running;
+        boolean interrupt;
+        synchronized (this) {
+            running = new ArrayList<>(work);
+            work.clear();
+            interrupt = cancelled;
+        }
+
+        for (Future<?> future : running) {
+            future.cancel(interrupt);
+        }
+    }
+
+    static Bitmap.CompressFormat parseFormat(String format) {
+        if ("jpeg".equals(format)) {
+            return Bitmap.CompressFormat.JPEG;
+        }
+
+        if ("png".equals(format)) {
+            return Bitmap.CompressFormat.PNG;
+        }
+
+        if ("webp".equals(format)) {
+            return Bitmap.CompressFormat.WEBP;
+        }
+
+        throw new IllegalArgumentException("Unsupported compressImageFormat value: " + format);
+    }
+}
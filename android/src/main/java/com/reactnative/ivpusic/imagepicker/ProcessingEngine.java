@@ -0,0 +1,181 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.os.Build;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded worker pool used for everything that happens after the picker
+ * returns: path resolution, decoding, thumbnails and base64 encoding.
+ * Keeps that work off the UI thread.
+ */
+class ProcessingEngine {
+
+    static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    /**
+     * Queued timers after which cancelled ones are purged, where they can't remove themselves.
+     */
+    private static final int TIMER_PURGE_THRESHOLD = 64;
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor itemExecutor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final PickerMetrics metrics;
+
+    ProcessingEngine(int threads, int queueCapacity, PickerMetrics metrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive, got " + threads);
+        }
+
+        this.metrics = metrics;
+
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(queueCapacity), new WorkerThreadFactory("worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        // items of a multiple selection; separate from the main pool so a batch
+        // waiting on its items can never starve them of threads
+        itemExecutor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory("item"));
+        itemExecutor.allowCoreThreadTimeOut(true);
+
+        timer = new ScheduledThreadPoolExecutor(1, new WorkerThreadFactory("timer"));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // deadlines cancelled by normal completion would otherwise stay queued until they expire
+            timer.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    static int defaultThreadCount() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    void execute(Runnable task) throws RejectedExecutionException {
+        executor.execute(task);
+    }
+
+    <T> Future<T> submit(Callable<T> task) throws RejectedExecutionException {
+        return executor.submit(task);
+    }
+
+    /**
+     * Fans {@code tasks} out over the item pool. At most {@link #getThreadCount()}
+     * run at once; the returned futures are in the same order as {@code tasks}.
+     */
+    <T> List<Future<T>> fanOut(List<? extends Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(submitItem(task));
+        }
+
+        return futures;
+    }
+
+    /**
+     * Runs one item on the item pool, e.g. a capture whose batch isn't complete yet.
+     */
+    <T> Future<T> submitItem(Callable<T> task) {
+        return itemExecutor.submit(task);
+    }
+
+    /**
+     * Runs {@code task} after {@code delayMs}, e.g. to enforce a deadline.
+     */
+    ScheduledFuture<?> schedule(Runnable task, long delayMs) throws RejectedExecutionException {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP && timer.getQueue().size() >= TIMER_PURGE_THRESHOLD) {
+            timer.purge();
+        }
+
+        return timer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs {@code task} on a worker and settles {@code promise} with its result.
+     * A {@link PickerException} rejects with its own code, any other exception
+     * with {@code errorCode}; if the task dies without
+     * settling (e.g. an Error), the promise is still rejected.
+     *
+     * @return the queued task, to interrupt it with {@code cancel(true)}; null if it was rejected
+     */
+    Future<?> process(final PickerPromise promise, final String errorCode, final Callable<?> task) {
+        final long queuedAt = System.nanoTime();
+
+        try {
+            return executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    metrics.record(PickerMetrics.STAGE_QUEUE, System.nanoTime() - queuedAt, 0, null);
+
+                    try {
+                        Object result = task.call();
+                        metrics.sampleHeap();
+
+                        PickerMetrics.Span span = metrics.start(PickerMetrics.STAGE_RESOLVE, null);
+                        try {
+                            promise.resolve(result);
+                        } finally {
+                            span.end();
+                        }
+                    } catch (PickerException ex) {
+                        promise.reject(ex.getCode(), ex.getMessage());
+                    } catch (Exception ex) {
+                        promise.reject(errorCode, ex.getMessage());
+                    } finally {
+                        if (!promise.isSettled()) {
+                            promise.reject(errorCode, "Processing failed");
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            promise.reject(errorCode, "Too many pending selections, try again later");
+            return null;
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        itemExecutor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    static class WorkerThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        WorkerThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "ImageCropPicker-" + name + "-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -18,11 +18,9 @@ public class RealPathUtil {
       if (isKitKat && DocumentsContract.isDocumentUri(context, uri)) {
           // ExternalStorageProvider
           if (isExternalStorageDocument(uri)) {
-              final String docId = DocumentsContract.getDocumentId(uri);
-              final String[] split = docId.split(":");
-              final String type = split[0];
+              final String[] split = DocumentIds.split(DocumentsContract.getDocumentId(uri));
 
-              if ("primary".equalsIgnoreCase(type)) {
+              if (split != null && "primary".equalsIgnoreCase(split[0])) {
                   return Environment.getExternalStorageDirectory() + "/" + split[1];
               }
 
@@ -39,8 +37,11 @@ public class RealPathUtil {
           }
           // MediaProvider
           else if (isMediaDocument(uri)) {
-              final String docId = DocumentsContract.getDocumentId(uri);
-              final String[] split = docId.split(":");
+              final String[] split = DocumentIds.split(DocumentsContract.getDocumentId(uri));
+              if (split == null) {
+                  return null;
+              }
+
               final String type = split[0];
 
               Uri contentUri = null;
@@ -116,7 +117,7 @@ public class RealPathUtil {
    * @return Whether the Uri authority is ExternalStorageProvider.
    */
   public static boolean isExternalStorageDocument(Uri uri) {
-      return "com.android.externalstorage.documents".equals(uri.getAuthority());
+      return DocumentIds.EXTERNAL_STORAGE_AUTHORITY.equals(uri.getAuthority());
   }
 
   /**
@@ -124,7 +125,7 @@ public class RealPathUtil {
    * @return Whether the Uri authority is DownloadsProvider.
    */
   public static boolean isDownloadsDocument(Uri uri) {
-      return "com.android.providers.downloads.documents".equals(uri.getAuthority());
+      return DocumentIds.DOWNLOADS_AUTHORITY.equals(uri.getAuthority());
   }
 
   /**
@@ -132,7 +133,7 @@ public class RealPathUtil {
    * @return Whether the Uri authority is MediaProvider.
    */
   public static boolean isMediaDocument(Uri uri) {
-      return "com.android.providers.media.documents".equals(uri.getAuthority());
+      return DocumentIds.MEDIA_AUTHORITY.equals(uri.getAuthority());
   }
 
   /**
@@ -140,7 +141,7 @@ public class RealPathUtil {
    * @return Whether the Uri authority is Google Photos.
    */
   public static boolean isGooglePhotosUri(Uri uri) {
-      return "com.google.android.apps.photos.content".equals(uri.getAuthority());
+      return DocumentIds.GOOGLE_PHOTOS_AUTHORITY.equals(uri.getAuthority());
   }
 
 }
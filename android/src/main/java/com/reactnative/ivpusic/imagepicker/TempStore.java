@@ -0,0 +1,291 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the module's tmp directory: crop outputs, imports and thumbnails.
+ * Keeps it within a byte and age quota by evicting the least recently
+ * modified files on a background thread, and deletes files off the caller's
+ * thread. Files handed to JS in this run are {@link #retain retained} and
+ * never evicted; JS releases them with {@code clean*()}. The quota applies to
+ * everything else, e.g. leftovers of earlier runs.
+ */
+class TempStore {
+
+    static final long DEFAULT_MAX_BYTES = 200L * 1024 * 1024;
+    static final long DEFAULT_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Files younger than this are never evicted; they may just have been handed to JS.
+     */
+    private static final long MIN_AGE_MS = 60 * 1000;
+
+    interface Callback {
+        /**
+         * @param error null on success
+         */
+        void done(Exception error);
+    }
+
+    interface StatsCallback {
+        void done(Stats stats);
+    }
+
+    static class Stats {
+        final long bytesUsed;
+        final int fileCount;
+        final int evictions;
+
+        Stats(long bytesUsed, int fileCount, int evictions) {
+            this.bytesUsed = bytesUsed;
+            this.fileCount = fileCount;
+            this.evictions = evictions;
+        }
+    }
+
+    private final File root;
+    private final List<String> selfManaged;
+    private final ThreadPoolExecutor executor;
+    private final AtomicBoolean evictionPending = new AtomicBoolean(false);
+    private final AtomicInteger evictions = new AtomicInteger();
+    // absolute paths
+    private final Set<String> retained = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private volatile boolean created = false;
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+    private volatile long maxAgeMs = DEFAULT_MAX_AGE_MS;
+
+    /**
+     * @param selfManaged Names of subdirectories that bound their own size
+     *                    (e.g. the thumbnail cache). They count towards the stats
+     *                    but are left alone by eviction.
+     */
+    TempStore(File root, String... selfManaged) {
+        this.root = root;
+        this.selfManaged = Arrays.asList(selfManaged);
+        this.executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ProcessingEngine.WorkerThreadFactory("tempstore"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    File getDir() {
+        if (!created) {
+            root.mkdirs();
+            created = true;
+        }
+
+        return root;
+    }
+
+    boolean contains(File file) {
+        try {
+            String rootPath = root.getCanonicalPath() + File.separator;
+            return file.getCanonicalPath().startsWith(rootPath);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Keeps eviction away from {@code file}, as JS may still use it, until it is deleted through this store.
+     */
+    void retain(File file) {
+        retained.add(file.getAbsolutePath());
+    }
+
+    void configure(long maxBytes, long maxAgeMs) {
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        scheduleEviction();
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+
+    /**
+     * Runs an eviction pass in the background. Calls made while one is
+     * already pending share it.
+     */
+    void scheduleEviction() {
+        if (!evictionPending.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                evictionPending.set(false);
+                evict();
+            }
+        });
+    }
+
+    void clear(final Callback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!root.exists()) {
+                    callback.done(new Exception("File does not exist"));
+                    return;
+                }
+
+                deleteRecursive(root);
+                retained.clear();
+                created = false;
+                callback.done(null);
+            }
+        });
+    }
+
+    /**
+     * Deletes {@code files} in the background.
+     *
+     * @param skipMissing Whether files that don't exist are skipped or fail the call.
+     */
+    void delete(final List<File> files, final boolean skipMissing, final Callback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<String> failed = new ArrayList<>();
+                for (File file : files) {
+                    if (!file.exists()) {
+                        if (!skipMissing) {
+                            callback.done(new Exception("File does not exist. Path: " + file.getPath()));
+                            return;
+                        }
+                    } else if (!deleteRecursive(file)) {
+                        failed.add(file.getPath());
+                        continue;
+                    }
+
+                    retained.remove(file.getAbsolutePath());
+                }
+
+                callback.done(failed.isEmpty() ? null : new IOException("Cannot delete " + failed));
+            }
+        });
+    }
+
+    void getStats(final StatsCallback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<File> files = new ArrayList<>();
+                collect(root, files, false);
+
+                long bytes = 0;
+                for (File file : files) {
+                    bytes += file.length();
+                }
+
+                callback.done(new Stats(bytes, files.size(), evictions.get()));
+            }
+        });
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private void evict() {
+        List<File> files = new ArrayList<>();
+        collect(root, files, true);
+
+        // retained files that were deleted some other way, e.g. by a cancelled request
+        for (String path : retained) {
+            if (!new File(path).exists()) {
+                retained.remove(path);
+            }
+        }
+
+        final long now = System.currentTimeMillis();
+        List<File> kept = new ArrayList<>(files.size());
+        long total = 0;
+
+        for (File file : files) {
+            if (retained.contains(file.getAbsolutePath())) {
+                continue;
+            }
+
+            long age = now - file.lastModified();
+            if (age > maxAgeMs && age > MIN_AGE_MS && file.delete()) {
+                evictions.incrementAndGet();
+            } else {
+                kept.add(file);
+                total += file.length();
+            }
+        }
+
+        if (total <= maxBytes) {
+            return;
+        }
+
+        Collections.sort(kept, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+
+        for (File file : kept) {
+            if (total <= maxBytes || now - file.lastModified() < MIN_AGE_MS) {
+                break;
+            }
+
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void collect(File dir, List<File> out, boolean skipSelfManaged) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+
+        for (File child : children) {
+            if (child.isDirectory()) {
+                if (!(skipSelfManaged && dir.equals(root) && selfManaged.contains(child.getName()))) {
+                    collect(child, out, skipSelfManaged);
+                }
+            } else {
+                out.add(child);
+            }
+        }
+    }
+
+    static boolean deleteRecursive(File fileOrDirectory) {
+        if (fileOrDirectory.isDirectory()) {
+            File[] children = fileOrDirectory.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    deleteRecursive(child);
+                }
+            }
+        }
+
+        return fileOrDirectory.delete();
+    }
+}
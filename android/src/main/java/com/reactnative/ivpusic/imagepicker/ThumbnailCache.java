@@ -0,0 +1,222 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two-level LRU cache of encoded thumbnails: a small in-memory cache backed by
+ * a size-bounded directory. Entries are keyed by source path, last modified
+ * time and length, so an edited or replaced file gets a new thumbnail.
+ */
+class ThumbnailCache {
+
+    static final int DEFAULT_MEMORY_BYTES = 1024 * 1024;
+    static final long DEFAULT_DISK_BYTES = 20 * 1024 * 1024;
+
+    interface Loader {
+        /**
+         * @return encoded thumbnail, or null if none can be created
+         */
+        byte[] load() throws Exception;
+    }
+
+    static class Thumbnail {
+        final File file;
+        final byte[] bytes;
+
+        Thumbnail(File file, byte[] bytes) {
+            this.file = file;
+            this.bytes = bytes;
+        }
+    }
+
+    private final File dir;
+    private final long maxDiskBytes;
+    private final LruCache<String, byte[]> memory;
+
+    private final AtomicInteger memoryHits = new AtomicInteger();
+    private final AtomicInteger diskHits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private long diskBytes = -1;
+
+    ThumbnailCache(File dir, int maxMemoryBytes, long maxDiskBytes) {
+        this.dir = dir;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LruCache<String, byte[]>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, byte[] value) {
+                return value.length;
+            }
+        };
+    }
+
+    /**
+     * @param variant Distinguishes thumbnails of the same source, e.g. by kind and size.
+     * @return cached or freshly loaded thumbnail, or null if {@code loader} returned none
+     */
+    Thumbnail get(File source, String variant, Loader loader) throws Exception {
+        String key = key(source, variant);
+        File file = new File(dir, key + ".jpg");
+
+        byte[] bytes = memory.get(key);
+        if (bytes != null) {
+            memoryHits.incrementAndGet();
+            if (!file.exists()) {
+                // disk level was cleaned underneath us
+                store(file, bytes);
+            }
+
+            return new Thumbnail(file, bytes);
+        }
+
+        if (file.exists()) {
+            bytes = read(file);
+            if (bytes != null) {
+                diskHits.incrementAndGet();
+                file.setLastModified(System.currentTimeMillis());
+                memory.put(key, bytes);
+
+                return new Thumbnail(file, bytes);
+            }
+        }
+
+        misses.incrementAndGet();
+        bytes = loader.load();
+        if (bytes == null) {
+            return null;
+        }
+
+        memory.put(key, bytes);
+        store(file, bytes);
+
+        return new Thumbnail(file, bytes);
+    }
+
+    int getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    int getDiskHits() {
+        return diskHits.get();
+    }
+
+    int getMisses() {
+        return misses.get();
+    }
+
+    int getMemoryBytes() {
+        return memory.size();
+    }
+
+    synchronized long getDiskBytes() {
+        return Math.max(diskBytes, 0);
+    }
+
+    /**
+     * Forgets the disk usage, e.g. after the directory was removed by {@code clean()}.
+     */
+    synchronized void onDiskCleared() {
+        diskBytes = -1;
+    }
+
+    private synchronized void store(File file, byte[] bytes) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create thumbnail directory " + dir);
+        }
+
+        if (diskBytes < 0) {
+            diskBytes = 0;
+            for (File cached : listFiles()) {
+                diskBytes += cached.length();
+            }
+        }
+
+        long previous = file.length();
+        File tmp = new File(dir, file.getName() + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot write thumbnail " + file);
+        }
+
+        diskBytes += bytes.length - previous;
+        trimDisk();
+    }
+
+    private void trimDisk() {
+        if (diskBytes <= maxDiskBytes) {
+            return;
+        }
+
+        File[] files = listFiles();
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+
+        for (int i = 0; i < files.length && diskBytes > maxDiskBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                diskBytes -= length;
+            }
+        }
+    }
+
+    private File[] listFiles() {
+        File[] files = dir.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    private static byte[] read(File file) {
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                byte[] bytes = new byte[(int) file.length()];
+                int read = Base64Encoder.readFully(in, bytes, bytes.length);
+                return read == bytes.length ? bytes : null;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String key(File source, String variant) {
+        String raw = source.getAbsolutePath() + "|" + source.lastModified() + "|" + source.length() + "|" + variant;
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(raw.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(raw.hashCode());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@code upload()} requests: the files of a request are sent by
+ * {@link FileUpload} on at most {@code concurrency} threads at once, and
+ * progress is reported in throttled {@link #EVENT_PROGRESS} events. Offsets
+ * of interrupted chunked uploads are kept in SharedPreferences.
+ */
+class Uploader {
+
+    static final String EVENT_PROGRESS = "ImageCropPicker:uploadProgress";
+
+    static final int DEFAULT_CONCURRENCY = 2;
+    static final int MAX_CONCURRENCY = 8;
+    static final long PROGRESS_INTERVAL_MS = 100;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final String PREFERENCES = "ImageCropPicker.uploads";
+    private static final String E_UPLOAD_FAILED = "E_UPLOAD_FAILED";
+    private static final String E_CANCELLED = "E_CANCELLED";
+
+    private final ReactApplicationContext reactContext;
+    private final ThreadPoolExecutor executor;
+    private final FileUpload.ResumeStore resumeStore;
+    private final Map<String, Request> requests = new ConcurrentHashMap<>();
+
+    Uploader(ReactApplicationContext reactContext) {
+        this.reactContext = reactContext;
+
+        // network bound, so kept apart from the processing pools
+        executor = new ThreadPoolExecutor(MAX_CONCURRENCY, MAX_CONCURRENCY, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ProcessingEngine.WorkerThreadFactory("upload"));
+        executor.allowCoreThreadTimeOut(true);
+
+        final SharedPreferences preferences = reactContext.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        resumeStore = new FileUpload.ResumeStore() {
+            @Override
+            public String get(String key) {
+                return preferences.getString(key, null);
+            }
+
+            @Override
+            public void put(String key, String value) {
+                preferences.edit().putString(key, value).apply();
+            }
+
+            @Override
+            public void remove(String key) {
+                preferences.edit().remove(key).apply();
+            }
+        };
+    }
+
+    /**
+     * Starts uploading {@code files}; {@code promise} resolves with one result per file, in order.
+     *
+     * @return false if a request with this id is still running
+     * @throws IllegalArgumentException if an option has an unsupported value
+     */
+    boolean start(String requestId, List<File> files, ReadableMap options, PickerPromise promise) {
+        if (!options.hasKey("url") || options.getString("url") == null) {
+            throw new IllegalArgumentException("url is required");
+        }
+
+        int concurrency = options.hasKey("concurrency") ? options.getInt("concurrency") : DEFAULT_CONCURRENCY;
+        if (concurrency < 1 || concurrency > MAX_CONCURRENCY) {
+            throw new IllegalArgumentException("concurrency must be between 1 and " + MAX_CONCURRENCY);
+        }
+
+        long chunkSize = options.hasKey("chunkSize") ? (long) options.getDouble("chunkSize") : 0;
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("chunkSize must not be negative");
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        if (options.hasKey("headers")) {
+            ReadableMap map = options.getMap("headers");
+            ReadableMapKeySetIterator keys = map.keySetIterator();
+            while (keys.hasNextKey()) {
+                String key = keys.nextKey();
+                headers.put(key, map.getString(key));
+            }
+        }
+
+        FileUpload.Options uploadOptions = new FileUpload.Options(options.getString("url"), headers,
+                options.hasKey("fieldName") ? options.getString("fieldName") : "file", chunkSize);
+
+        Request request = new Request(requestId, files, uploadOptions, promise);
+        if (requests.putIfAbsent(requestId, request) != null) {
+            return false;
+        }
+
+        request.start(concurrency);
+        return true;
+    }
+
+    /**
+     * Interrupts the request's uploads; chunked uploads keep their offsets and can be resumed.
+     *
+     * @return false if no request with this id is running
+     */
+    boolean cancel(String requestId) {
+        Request request = requests.get(requestId);
+        return request != null && request.cancel("Upload " + requestId + " was cancelled");
+    }
+
+    void shutdown() {
+        for (Request request : requests.values()) {
+            request.cancel("React context was destroyed");
+        }
+
+        executor.shutdownNow();
+    }
+
+    private void emit(WritableMap event) {
+        if (!reactContext.hasActiveCatalystInstance()) {
+            return;
+        }
+
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(EVENT_PROGRESS, event);
+    }
+
+    private class Request implements Runnable {
+        private final String id;
+        private final List<File> files;
+        private final FileUpload.Options options;
+        private final PickerPromise promise;
+
+        private final WritableMap[] results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final List<Future<?>> workers = new ArrayList<>();
+
+        Request(String id, List<File> files, FileUpload.Options options, PickerPromise promise) {
+            this.id = id;
+            this.files = files;
+            this.options = options;
+            this.promise = promise;
+            this.results = new WritableMap[files.size()];
+            this.remaining = new AtomicInteger(files.size());
+        }
+
+        synchronized void start(int concurrency) {
+            if (files.isEmpty()) {
+                finish();
+                return;
+            }
+
+            try {
+                for (int i = 0; i < Math.min(concurrency, files.size()); i++) {
+                    workers.add(executor.submit(this));
+                }
+            } catch (RejectedExecutionException ex) {
+                fail(ex);
+            }
+        }
+
+        /**
+         * Takes files off the shared index until none are left, so at most
+         * as many files are in flight as there are workers.
+         */
+        @Override
+        public void run() {
+            int index;
+            while (!Thread.currentThread().isInterrupted() && (index = next.getAndIncrement()) < files.size()) {
+                results[index] = upload(index);
+                if (remaining.decrementAndGet() == 0) {
+                    finish();
+                }
+            }
+        }
+
+        private WritableMap upload(final int index) {
+            final File file = files.get(index);
+            WritableMap result = new WritableNativeMap();
+            result.putString("path", "file://" + file.getAbsolutePath());
+
+            try {
+                if (!file.isFile()) {
+                    throw new FileNotFoundException("File does not exist: " + file);
+                }
+
+                FileUpload.Response response = FileUpload.upload(file, options, resumeStore, new FileUpload.ProgressListener() {
+                    private long lastEmit;
+
+                    @Override
+                    public void onProgress(long bytesSent, long totalBytes) {
+                        long now = System.currentTimeMillis();
+                        if (bytesSent < totalBytes && now - lastEmit < PROGRESS_INTERVAL_MS) {
+                            return;
+                        }
+
+                        lastEmit = now;
+                        WritableMap event = new WritableNativeMap();
+                        event.putString("requestId", id);
+                        event.putInt("index", index);
+                        event.putString("path", "file://" + file.getAbsolutePath());
+                        event.putDouble("bytesSent", bytesSent);
+                        event.putDouble("totalBytes", totalBytes);
+                        emit(event);
+                    }
+                });
+
+                result.putInt("status", response.status);
+                result.putString("body", response.body);
+            } catch (InterruptedIOException ex) {
+                Thread.currentThread().interrupt();
+                putError(result, ex);
+            } catch (Exception ex) {
+                putError(result, ex);
+            }
+
+            return result;
+        }
+
+        private void putError(WritableMap result, Exception ex) {
+            WritableMap error = new WritableNativeMap();
+            error.putString("code", E_UPLOAD_FAILED);
+            error.putString("message", ex.getMessage());
+            result.putMap("error", error);
+        }
+
+        private void finish() {
+            requests.remove(id, this);
+
+            WritableArray array = new WritableNativeArray();
+            for (WritableMap result : results) {
+                array.pushMap(result);
+            }
+            promise.resolve(array);
+        }
+
+        private synchronized void fail(Exception ex) {
+            stop(E_UPLOAD_FAILED, ex.getMessage());
+        }
+
+        synchronized boolean cancel(String message) {
+            return stop(E_CANCELLED, message);
+        }
+
+        private boolean stop(String code, String message) {
+            requests.remove(id, this);
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+
+            return promise.reject(code, message);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.webkit.MimeTypeMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Copies content that has no local file behind it (cloud and document
+ * providers, Google Photos) into the tmp directory, so the rest of the
+ * pipeline can treat every selection as a file.
+ * <p>
+ * Copies go channel to channel without byte array loops. Concurrent and
+ * repeated imports of the same source URI share a single copy. When a hash
+ * is requested, the copy loop feeds it, so the content is still read once.
+ * A shared copy runs on the thread of the import that started it. If that
+ * import is interrupted, e.g. because its request was cancelled, the others
+ * start the copy again rather than failing with it.
+ */
+class UriImporter {
+
+    private final Context context;
+    private final File dir;
+    private final ContentHasher hasher;
+    private final ConcurrentHashMap<String, FutureTask<File>> imports = new ConcurrentHashMap<>();
+
+    UriImporter(Context context, File dir, ContentHasher hasher) {
+        this.context = context;
+        this.dir = dir;
+        this.hasher = hasher;
+    }
+
+    /**
+     * @param hashAlgorithm If set, the digest of the copy is handed to the {@link ContentHasher}
+     */
+    File importUri(final Uri uri, final String hashAlgorithm) throws Exception {
+        String key = uri.toString();
+
+        while (true) {
+            FutureTask<File> task = imports.get(key);
+            FutureTask<File> created = null;
+            if (task == null) {
+                created = new FutureTask<>(new Callable<File>() {
+                    @Override
+                    public File call() throws Exception {
+                        return copy(uri, hashAlgorithm);
+                    }
+                });
+
+                task = imports.putIfAbsent(key, created);
+                if (task == null) {
+                    task = created;
+                    created.run();
+                }
+            }
+
+            boolean owner = task == created;
+            try {
+                File file = task.get();
+                if (file.exists()) {
+                    return file;
+                }
+
+                // imported before, but cleaned up since
+                imports.remove(key, task);
+            } catch (ExecutionException ex) {
+                imports.remove(key, task);
+                Throwable cause = ex.getCause();
+                if (!owner && isInterruption(cause) && !Thread.currentThread().isInterrupted()) {
+                    // the copy was stopped for another import's sake, not because it failed
+                    continue;
+                }
+
+                throw cause instanceof Exception ? (Exception) cause : ex;
+            }
+        }
+    }
+
+    private static boolean isInterruption(Throwable cause) {
+        return cause instanceof InterruptedIOException
+                || cause instanceof ClosedByInterruptException
+                || cause instanceof InterruptedException;
+    }
+
+    /**
+     * Forgets finished imports, e.g. after the tmp directory was removed by {@code clean()}.
+     */
+    void onDiskCleared() {
+        imports.clear();
+    }
+
+    private File copy(Uri uri, String hashAlgorithm) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+        ParcelFileDescriptor descriptor = resolver.openFileDescriptor(uri, "r");
+        if (descriptor == null) {
+            throw new FileNotFoundException("Cannot open " + uri);
+        }
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            descriptor.close();
+            throw new IOException("Cannot create import directory " + dir);
+        }
+
+        File target = new File(dir, "import-" + UUID.randomUUID().toString() + getExtension(resolver.getType(uri)));
+        FileInputStream in = new FileInputStream(descriptor.getFileDescriptor());
+        FileOutputStream out = new FileOutputStream(target);
+        MessageDigest digest = hashAlgorithm != null ? FileDigests.newDigest(hashAlgorithm) : null;
+        boolean copied = false;
+
+        try {
+            FileCopier.copy(in.getChannel(), descriptor.getStatSize(), out.getChannel(), digest);
+            copied = true;
+        } finally {
+            in.close();
+            out.close();
+            descriptor.close();
+
+            if (!copied) {
+                target.delete();
+            }
+        }
+
+        if (digest != null) {
+            hasher.put(target, hashAlgorithm, digest);
+        }
+
+        return target;
+    }
+
+    private static String getExtension(String mime) {
+        String extension = mime == null ? null : MimeTypeMap.getSingleton().getExtensionFromMimeType(mime);
+        return extension == null ? "" : "." + extension;
+    }
+}
@@ -0,0 +1,85 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Scaled frame extraction from an open {@link MediaMetadataRetriever}. On API
+ * 27+ the decoder scales while decoding ({@code getScaledFrameAtTime}), older
+ * versions decode the full frame and scale it down afterwards.
+ */
+final class VideoFrames {
+
+    // Build.VERSION_CODES.O_MR1, newer than the SDK we compile against
+    private static final int O_MR1 = 27;
+
+    private static final Method GET_SCALED_FRAME_AT_TIME = findScaledFrameMethod();
+
+    private VideoFrames() {
+    }
+
+    /**
+     * @param timeUs  Frame time in microseconds, or -1 for any representative frame
+     * @param maxSize Longest edge of the returned frame, or 0 for the stored size
+     * @return frame fitting into {@code maxSize} x {@code maxSize}, or null if none can be decoded
+     */
+    static Bitmap getFrame(MediaMetadataRetriever retriever, long timeUs, int maxSize) {
+        if (maxSize > 0 && GET_SCALED_FRAME_AT_TIME != null) {
+            try {
+                return (Bitmap) GET_SCALED_FRAME_AT_TIME.invoke(retriever, timeUs,
+                        MediaMetadataRetriever.OPTION_CLOSEST_SYNC, maxSize, maxSize);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                // fall through to the unscaled decode
+            }
+        }
+
+        Bitmap frame = retriever.getFrameAtTime(timeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+        if (frame == null || maxSize <= 0) {
+            return frame;
+        }
+
+        int longest = Math.max(frame.getWidth(), frame.getHeight());
+        if (longest <= maxSize) {
+            return frame;
+        }
+
+        Bitmap scaled = Bitmap.createScaledBitmap(frame,
+                Math.max(1, frame.getWidth() * maxSize / longest),
+                Math.max(1, frame.getHeight() * maxSize / longest), true);
+        if (scaled != frame) {
+            frame.recycle();
+        }
+
+        return scaled;
+    }
+
+    /**
+     * @param count Number of frames, at least 1
+     * @return times in microseconds, centered in {@code count} equal parts of the video
+     */
+    static long[] getStripTimes(long durationMs, int count) {
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = durationMs * 1000 * (2 * i + 1) / (2 * count);
+        }
+
+        return times;
+    }
+
+    private static Method findScaledFrameMethod() {
+        if (Build.VERSION.SDK_INT < O_MR1) {
+            return null;
+        }
+
+        try {
+            return MediaMetadataRetriever.class.getMethod("getScaledFrameAtTime",
+                    long.class, int.class, int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
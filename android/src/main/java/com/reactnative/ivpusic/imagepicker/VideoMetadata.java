@@ -0,0 +1,69 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+
+/**
+ * Video properties read from container metadata, without decoding any frame.
+ */
+class VideoMetadata {
+
+    final int width;
+    final int height;
+    final int rotation;
+    final long duration;
+    final long bitrate;
+
+    private VideoMetadata(int width, int height, int rotation, long duration, long bitrate) {
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+        this.duration = duration;
+        this.bitrate = bitrate;
+    }
+
+    static VideoMetadata read(MediaMetadataRetriever retriever) {
+        int rotation = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            rotation = (int) parse(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+        }
+
+        return new VideoMetadata(
+                (int) parse(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH)),
+                (int) parse(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT)),
+                rotation,
+                parse(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION)),
+                parse(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_BITRATE)));
+    }
+
+    boolean hasSize() {
+        return width > 0 && height > 0;
+    }
+
+    private boolean isRotated() {
+        return rotation == 90 || rotation == 270;
+    }
+
+    /**
+     * @return width as the video is displayed, i.e. with rotation applied
+     */
+    int getDisplayWidth() {
+        return isRotated() ? height : width;
+    }
+
+    int getDisplayHeight() {
+        return isRotated() ? width : height;
+    }
+
+    private static long parse(String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import com.facebook.react.bridge.NativeArray;
+import com.facebook.react.bridge.NativeMap;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableNativeArray;
+import com.facebook.react.bridge.ReadableNativeMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.internal.ShadowExtractor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the React Native bridge's maps and arrays without its native library:
+ * static initializers that would load it are skipped, and written values are
+ * kept on the Java side, see {@link #valuesOf(WritableMap)}.
+ * Registered in {@code robolectric.properties}.
+ */
+final class BridgeShadows {
+
+    private BridgeShadows() {
+    }
+
+    static Map<String, Object> valuesOf(WritableMap map) {
+        return ((ShadowWritableNativeMap) ShadowExtractor.extract(map)).values;
+    }
+
+    static List<Object> valuesOf(WritableArray array) {
+        return ((ShadowWritableNativeArray) ShadowExtractor.extract(array)).values;
+    }
+
+    @Implements(NativeMap.class)
+    public static class ShadowNativeMap {
+        @Implementation
+        public static void __staticInitializer__() {
+        }
+    }
+
+    @Implements(ReadableNativeMap.class)
+    public static class ShadowReadableNativeMap {
+        @Implementation
+        public static void __staticInitializer__() {
+        }
+    }
+
+    @Implements(NativeArray.class)
+    public static class ShadowNativeArray {
+        @Implementation
+        public static void __staticInitializer__() {
+        }
+    }
+
+    @Implements(ReadableNativeArray.class)
+    public static class ShadowReadableNativeArray {
+        @Implementation
+        public static void __staticInitializer__() {
+        }
+    }
+
+    @Implements(WritableNativeMap.class)
+    public static class ShadowWritableNativeMap {
+        final Map<String, Object> values = new LinkedHashMap<>();
+
+        @Implementation
+        public static void __staticInitializer__() {
+        }
+
+        @Implementation
+        public synchronized void putNull(String key) {
+            values.put(key, null);
+        }
+
+        @Implementation
+        public synchronized void putBoolean(String key, boolean value) {
+            values.put(key, value);
+        }
+
+        @Implementation
+        public synchronized void putDouble(String key, double value) {
+            values.put(key, value);
+        }
+
+        @Implementation
+        public synchronized void putInt(String key, int value) {
+            values.put(key, value);
+        }
+
+        @Implementation
+        public synchronized void putString(String key, String value) {
+            values.put(key, value);
+        }
+
+        @Implementation
+        public synchronized void putMap(String key, WritableMap value) {
+            values.put(key, value);
+        }
+
+        @Implementation
+        public synchronized void putArray(String key, WritableArray value) {
+            values.put(key, value);
+        }
+
+        @Implementation
+        public synchronized void merge(ReadableMap source) {
+            values.putAll(((ShadowWritableNativeMap) ShadowExtractor.extract(source)).values);
+        }
+    }
+
+    @Implements(WritableNativeArray.class)
+    public static class ShadowWritableNativeArray {
+        final List<Object> values = new ArrayList<>();
+
+        @Implementation
+        public static void __staticInitializer__() {
+        }
+
+        @Implementation
+        public synchronized void pushNull() {
+            values.add(null);
+        }
+
+        @Implementation
+        public synchronized void pushBoolean(boolean value) {
+            values.add(value);
+        }
+
+        @Implementation
+        public synchronized void pushDouble(double value) {
+            values.add(value);
+        }
+
+        @Implementation
+        public synchronized void pushInt(int value) {
+            values.add(value);
+        }
+
+        @Implementation
+        public synchronized void pushString(String value) {
+            values.add(value);
+        }
+
+        @Implementation
+        public synchronized void pushArray(WritableArray value) {
+            values.add(value);
+        }
+
+        @Implementation
+        public synchronized void pushMap(WritableMap value) {
+            values.add(value);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link FileUpload} against a local stand-in server that keeps every request
+ * and answers chunks as each test scripts it.
+ */
+public class FileUploadTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String url;
+    private final StandInHandler handler = new StandInHandler();
+    private final MemoryStore store = new MemoryStore();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload", handler);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/upload";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void sendsSmallFilesAsOneMultipartRequest() throws IOException {
+        byte[] content = randomBytes(2500);
+        File file = createFile("photo.jpg", content);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "Bearer token");
+
+        FileUpload.Response response = FileUpload.upload(file,
+                new FileUpload.Options(url, headers, "image", 0), store, null);
+
+        assertEquals(200, response.status);
+        assertEquals("done", response.body);
+        assertEquals(1, handler.requests.size());
+
+        Request request = handler.requests.get(0);
+        assertEquals("Bearer token", request.headers.get("Authorization"));
+        String contentType = request.headers.get("Content-type");
+        assertTrue(contentType, contentType.startsWith("multipart/form-data; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"photo.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        assertArrayEquals(concat(head.getBytes("UTF-8"), content, tail.getBytes("UTF-8")), request.body);
+        assertNull(request.headers.get("Content-range"));
+    }
+
+    @Test
+    public void sendsLargeFilesInChunks() throws IOException {
+        byte[] content = randomBytes(2500);
+        File file = createFile("video.mp4", content);
+        final List<Long> progress = new ArrayList<>();
+
+        FileUpload.Response response = FileUpload.upload(file, chunked(), store, new FileUpload.ProgressListener() {
+            @Override
+            public void onProgress(long bytesSent, long totalBytes) {
+                assertEquals(2500, totalBytes);
+                progress.add(bytesSent);
+            }
+        });
+
+        assertEquals(200, response.status);
+        assertEquals(Arrays.asList("bytes 0-999/2500", "bytes 1000-1999/2500", "bytes 2000-2499/2500"),
+                handler.getRanges());
+        assertEquals(1, handler.getUploadIds().size());
+        assertArrayEquals(content, handler.getStoredBytes());
+        assertEquals(Long.valueOf(2500), progress.get(progress.size() - 1));
+        assertTrue(store.values.isEmpty());
+
+        for (Request request : handler.requests) {
+            assertEquals("video.mp4", request.headers.get("X-upload-name"));
+            assertEquals("application/octet-stream", request.headers.get("Content-type"));
+            assertEquals(Base64Encoder.encodeToString(FileDigests.newDigest("MD5").digest(request.body)),
+                    request.headers.get("Content-md5"));
+        }
+    }
+
+    @Test
+    public void continuesAfterWhatAPartialRangeReplyCovers() throws IOException {
+        byte[] content = randomBytes(2500);
+        File file = createFile("video.mp4", content);
+        // keeps only the first half of the first chunk
+        handler.storedLimits.put(0L, 500L);
+
+        FileUpload.upload(file, chunked(), store, null);
+
+        assertEquals(Arrays.asList("bytes 0-999/2500", "bytes 500-1499/2500", "bytes 1500-2499/2500"),
+                handler.getRanges());
+        assertArrayEquals(content, handler.getStoredBytes());
+    }
+
+    @Test
+    public void resumesFromTheStoreAfterAFailedChunk() throws IOException {
+        byte[] content = randomBytes(2500);
+        File file = createFile("video.mp4", content);
+        handler.failingOffsets.add(1000L);
+
+        try {
+            FileUpload.upload(file, chunked(), store, null);
+            fail("Expected the second chunk to fail");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("HTTP 500"));
+        }
+
+        String uploadId = handler.requests.get(0).headers.get("X-upload-id");
+        assertEquals(uploadId + ":1000", store.values.values().iterator().next());
+
+        handler.failingOffsets.clear();
+        handler.requests.clear();
+        FileUpload.Response response = FileUpload.upload(file, chunked(), store, null);
+
+        assertEquals(200, response.status);
+        assertEquals(Arrays.asList("bytes 1000-1999/2500", "bytes 2000-2499/2500"), handler.getRanges());
+        assertEquals(Arrays.asList(uploadId), new ArrayList<>(handler.getUploadIds()));
+        assertTrue(store.values.isEmpty());
+    }
+
+    @Test
+    public void acceptsResumeIncompleteCoveringTheWholeFileForTheLastChunk() throws IOException {
+        File file = createFile("video.mp4", randomBytes(2500));
+        handler.finalStatus = FileUpload.STATUS_RESUME_INCOMPLETE;
+
+        FileUpload.Response response = FileUpload.upload(file, chunked(), store, null);
+
+        assertEquals(FileUpload.STATUS_RESUME_INCOMPLETE, response.status);
+        assertEquals(3, handler.requests.size());
+        assertTrue(store.values.isEmpty());
+    }
+
+    @Test
+    public void stopsHashingWhenInterrupted() throws IOException {
+        File file = createFile("video.mp4", randomBytes(4 * FileUpload.BUFFER_SIZE));
+
+        Thread.currentThread().interrupt();
+        try {
+            FileUpload.md5(file, 0, file.length());
+            fail("Expected hashing to stop");
+        } catch (InterruptedIOException expected) {
+            assertNotNull(expected.getMessage());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void readsTheCommittedEndOfARangeHeader() {
+        assertEquals(1000, FileUpload.getCommittedEnd("bytes=0-999", 5));
+        assertEquals(5, FileUpload.getCommittedEnd(null, 5));
+        assertEquals(5, FileUpload.getCommittedEnd("bytes=0-", 5));
+        assertEquals(5, FileUpload.getCommittedEnd("items=0-999", 5));
+    }
+
+    private FileUpload.Options chunked() {
+        return new FileUpload.Options(url, null, "file", CHUNK_SIZE);
+    }
+
+    private File createFile(String name, byte[] content) throws IOException {
+        File file = folder.newFile(name);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+
+        return file;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static class MemoryStore implements FileUpload.ResumeStore {
+        final Map<String, String> values = new HashMap<>();
+
+        @Override
+        public String get(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            values.remove(key);
+        }
+    }
+
+    private static class Request {
+        final Map<String, String> headers = new HashMap<>();
+        final byte[] body;
+
+        Request(HttpExchange exchange, byte[] body) {
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                headers.put(header.getKey(), header.getValue().get(0));
+            }
+            this.body = body;
+        }
+    }
+
+    /**
+     * Keeps the chunks it accepts by offset and answers them with 308 and a
+     * {@code Range} header until the file is complete, then with 200.
+     */
+    private static class StandInHandler implements HttpHandler {
+        final List<Request> requests = new ArrayList<>();
+        // offset of a chunk -> bytes of the file stored after it
+        final Map<Long, Long> storedLimits = new HashMap<>();
+        final List<Long> failingOffsets = new ArrayList<>();
+        int finalStatus = 200;
+        private final Map<Long, byte[]> stored = new HashMap<>();
+
+        @Override
+        public synchronized void handle(HttpExchange exchange) throws IOException {
+            InputStream in = exchange.getRequestBody();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+
+            Request request = new Request(exchange, body.toByteArray());
+            requests.add(request);
+
+            String range = request.headers.get("Content-range");
+            if (range == null) {
+                respond(exchange, 200, "done");
+                return;
+            }
+
+            String[] parts = range.substring("bytes ".length()).split("[-/]");
+            long first = Long.parseLong(parts[0]);
+            long last = Long.parseLong(parts[1]);
+            long total = Long.parseLong(parts[2]);
+
+            if (failingOffsets.contains(first)) {
+                respond(exchange, 500, "failed");
+                return;
+            }
+
+            long end = storedLimits.containsKey(first) ? storedLimits.get(first) : last + 1;
+            if (end > first) {
+                stored.put(first, Arrays.copyOf(request.body, (int) (end - first)));
+            }
+
+            if (end == total && finalStatus == 200) {
+                respond(exchange, 200, "done");
+                return;
+            }
+
+            if (end > 0) {
+                exchange.getResponseHeaders().set("Range", "bytes=0-" + (end - 1));
+            }
+            respond(exchange, FileUpload.STATUS_RESUME_INCOMPLETE, null);
+        }
+
+        synchronized List<String> getRanges() {
+            List<String> ranges = new ArrayList<>();
+            for (Request request : requests) {
+                ranges.add(request.headers.get("Content-range"));
+            }
+
+            return ranges;
+        }
+
+        synchronized Set<String> getUploadIds() {
+            Set<String> ids = new LinkedHashSet<>();
+            for (Request request : requests) {
+                ids.add(request.headers.get("X-upload-id"));
+            }
+
+            return ids;
+        }
+
+        /**
+         * @return the file as assembled from the stored chunks
+         */
+        synchronized byte[] getStoredBytes() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long offset = 0;
+            while (stored.containsKey(offset)) {
+                byte[] chunk = stored.get(offset);
+                out.write(chunk, 0, chunk.length);
+                offset += chunk.length;
+            }
+
+            return out.toByteArray();
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body == null ? new byte[0] : body.getBytes("UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                exchange.getResponseBody().write(bytes);
+            }
+            exchange.close();
+        }
+    }
+}
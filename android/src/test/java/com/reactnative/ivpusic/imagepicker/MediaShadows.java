@@ -0,0 +1,247 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+import android.media.MediaMetadataRetriever;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stands in for the platform's media decoders, which don't run on the JVM.
+ * Sizes, MIME types and durations are parsed from the headers of the real
+ * fixture files, so a pick still reads its input; pixels are blank.
+ * Registered in {@code robolectric.properties}.
+ */
+final class MediaShadows {
+
+    // enough for the PNG header and the JPEG markers of the fixtures
+    private static final int HEADER_BYTES = 64 * 1024;
+
+    private MediaShadows() {
+    }
+
+    @Implements(BitmapFactory.class)
+    public static class ShadowHeaderBitmapFactory {
+
+        @Implementation
+        public static Bitmap decodeFile(String path) {
+            return decodeFile(path, null);
+        }
+
+        @Implementation
+        public static Bitmap decodeFile(String path, BitmapFactory.Options options) {
+            try {
+                RandomAccessFile file = new RandomAccessFile(path, "r");
+                try {
+                    return decode(file.getChannel(), options);
+                } finally {
+                    file.close();
+                }
+            } catch (IOException ex) {
+                return null;
+            }
+        }
+
+        @Implementation
+        public static Bitmap decodeFileDescriptor(FileDescriptor fd, Rect outPadding, BitmapFactory.Options options) {
+            // not closed: the descriptor belongs to the caller, and positional
+            // reads leave its offset where it was
+            try {
+                return decode(new FileInputStream(fd).getChannel(), options);
+            } catch (IOException ex) {
+                return null;
+            }
+        }
+
+        private static Bitmap decode(FileChannel channel, BitmapFactory.Options options) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(HEADER_BYTES, channel.size()));
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            }
+
+            byte[] bytes = header.array();
+            int[] size = isPng(bytes) ? readPngSize(bytes) : readJpegSize(bytes);
+            if (size == null) {
+                return null;
+            }
+
+            if (options != null) {
+                options.outWidth = size[0];
+                options.outHeight = size[1];
+                options.outMimeType = isPng(bytes) ? "image/png" : "image/jpeg";
+                if (options.inJustDecodeBounds) {
+                    return null;
+                }
+            }
+
+            int sampleSize = options != null && options.inSampleSize > 1 ? options.inSampleSize : 1;
+            return Bitmap.createBitmap(Math.max(1, size[0] / sampleSize), Math.max(1, size[1] / sampleSize),
+                    Bitmap.Config.ARGB_8888);
+        }
+
+        private static boolean isPng(byte[] bytes) {
+            return bytes.length >= 24 && (bytes[0] & 0xff) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G';
+        }
+
+        private static int[] readPngSize(byte[] bytes) {
+            // IHDR is the first chunk
+            return new int[]{readInt(bytes, 16), readInt(bytes, 20)};
+        }
+
+        private static int[] readJpegSize(byte[] bytes) {
+            if (bytes.length < 4 || (bytes[0] & 0xff) != 0xff || (bytes[1] & 0xff) != 0xd8) {
+                return null;
+            }
+
+            int offset = 2;
+            while (offset + 9 < bytes.length) {
+                if ((bytes[offset] & 0xff) != 0xff) {
+                    return null;
+                }
+
+                int marker = bytes[offset + 1] & 0xff;
+                // start of frame, except DHT, JPG and DAC, which share the range
+                if (marker >= 0xc0 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc) {
+                    return new int[]{readShort(bytes, offset + 7), readShort(bytes, offset + 5)};
+                }
+
+                offset += 2 + readShort(bytes, offset + 2);
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Reads the movie header and the first track header of an MP4 file.
+     */
+    @Implements(MediaMetadataRetriever.class)
+    public static class ShadowMp4MetadataRetriever {
+        private int width;
+        private int height;
+        private long durationMs;
+        private long bitrate;
+
+        @Implementation
+        public void setDataSource(String path) {
+            try {
+                RandomAccessFile file = new RandomAccessFile(path, "r");
+                try {
+                    readBoxes(file, 0, file.length());
+                } finally {
+                    file.close();
+                }
+
+                if (durationMs > 0) {
+                    bitrate = new File(path).length() * 8 * 1000 / durationMs;
+                }
+            } catch (IOException ex) {
+                throw new IllegalArgumentException(ex);
+            }
+        }
+
+        @Implementation
+        public String extractMetadata(int keyCode) {
+            switch (keyCode) {
+                case MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH:
+                    return String.valueOf(width);
+                case MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT:
+                    return String.valueOf(height);
+                case MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION:
+                    return "0";
+                case MediaMetadataRetriever.METADATA_KEY_DURATION:
+                    return String.valueOf(durationMs);
+                case MediaMetadataRetriever.METADATA_KEY_BITRATE:
+                    return String.valueOf(bitrate);
+                default:
+                    return null;
+            }
+        }
+
+        @Implementation
+        public Bitmap getFrameAtTime() {
+            return getFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+        }
+
+        @Implementation
+        public Bitmap getFrameAtTime(long timeUs, int option) {
+            return width > 0 && height > 0 ? Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888) : null;
+        }
+
+        @Implementation
+        public void release() {
+        }
+
+        private void readBoxes(RandomAccessFile file, long start, long end) throws IOException {
+            long offset = start;
+            while (offset + 8 <= end) {
+                file.seek(offset);
+                long size = file.readInt() & 0xffffffffL;
+                String type = readType(file);
+                int headerSize = 8;
+                if (size == 1) {
+                    size = file.readLong();
+                    headerSize = 16;
+                } else if (size == 0) {
+                    size = end - offset;
+                }
+
+                if (size < headerSize) {
+                    return;
+                }
+
+                if (type.equals("moov") || type.equals("trak")) {
+                    readBoxes(file, offset + headerSize, offset + size);
+                } else if (type.equals("mvhd")) {
+                    readMovieHeader(file);
+                } else if (type.equals("tkhd") && width == 0) {
+                    readTrackHeader(file);
+                }
+
+                offset += size;
+            }
+        }
+
+        private void readMovieHeader(RandomAccessFile file) throws IOException {
+            int version = file.readInt() >>> 24;
+            // creation and modification time
+            file.skipBytes(version == 1 ? 16 : 8);
+            long timescale = file.readInt() & 0xffffffffL;
+            long duration = version == 1 ? file.readLong() : file.readInt() & 0xffffffffL;
+            durationMs = timescale > 0 ? duration * 1000 / timescale : 0;
+        }
+
+        private void readTrackHeader(RandomAccessFile file) throws IOException {
+            int version = file.readInt() >>> 24;
+            // times, track id, reserved, duration, reserved, layer, group, volume, reserved, matrix
+            file.skipBytes((version == 1 ? 32 : 20) + 8 + 8 + 36);
+            // 16.16 fixed point; audio tracks have 0
+            width = file.readInt() >>> 16;
+            height = file.readInt() >>> 16;
+        }
+
+        private static String readType(RandomAccessFile file) throws IOException {
+            byte[] type = new byte[4];
+            file.readFully(type);
+            return new String(type, "US-ASCII");
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16
+                | (bytes[offset + 2] & 0xff) << 8 | bytes[offset + 3] & 0xff;
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) << 8 | bytes[offset + 1] & 0xff;
+    }
+}
@@ -0,0 +1,185 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.WritableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Picks selections of 1 to 500 encoded fixtures, alternating JPEG and PNG,
+ * and fails when a selection gets slower or allocates more than it should
+ * for its size.
+ * <p>
+ * Time is bounded by single picks measured in the same run, so the bound
+ * scales with the machine. Allocations are counted per thread rather than
+ * read off the heap, so they don't depend on when the collector runs.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class MultipleSelectionTest {
+
+    private static final int WARM_UP_PICKS = 5;
+    private static final int BASELINE_PICKS = 7;
+
+    // the items of a selection may take this many times as long as single
+    // picks; a pick that is quadratic in the selection size exceeds it
+    private static final long MAX_SLOWDOWN = 4;
+    // single picks faster than this are within the timer's noise
+    private static final long MIN_BASELINE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // room for a collector or scheduler pause, which small selections can't absorb
+    private static final long MAX_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    // what a pick may allocate regardless of its size, including what other
+    // threads allocate meanwhile
+    private static final long MAX_PICK_ALLOCATION_BYTES = 1024 * 1024;
+    // what a pick may allocate per item on top of its base64 data; about
+    // five times what it takes
+    private static final long MAX_ITEM_ALLOCATION_BYTES = 64 * 1024;
+    // the base64 string, the bytes it is encoded from, and the copies the
+    // encoder and the bridge make; chars take up to two bytes each
+    private static final long MAX_ALLOCATION_BYTES_PER_BASE64_CHAR = 8;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0} items, includeBase64 = {1}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (int count : new int[]{1, 10, 100, 500}) {
+            parameters.add(new Object[]{count, false});
+            parameters.add(new Object[]{count, true});
+        }
+        return parameters;
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final int count;
+    private final boolean includeBase64;
+    private PickerHarness harness;
+    private List<File> files;
+
+    public MultipleSelectionTest(int count, boolean includeBase64) {
+        this.count = count;
+        this.includeBase64 = includeBase64;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        harness = new PickerHarness();
+        files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String fixture = isPng(i) ? PickerHarness.PNG : PickerHarness.JPEG;
+            files.add(PickerHarness.copyFixture(fixture, folder.newFile("fixture-" + i + (isPng(i) ? ".png" : ".jpg"))));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        harness.destroy();
+    }
+
+    @Test
+    public void resolvesTheSelectionInOrder() throws Exception {
+        List<Object> images = pickAll().getArray();
+
+        assertEquals(count, images.size());
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> image = BridgeShadows.valuesOf((WritableMap) images.get(i));
+            assertEquals("file://" + files.get(i).getAbsolutePath(), image.get("path"));
+            assertEquals(isPng(i) ? 320 : 640, image.get("width"));
+            assertEquals(isPng(i) ? 240 : 480, image.get("height"));
+            assertEquals(isPng(i) ? "image/png" : "image/jpeg", image.get("mime"));
+            assertEquals(includeBase64, image.get("data") != null);
+        }
+    }
+
+    @Test
+    public void takesAtMostLinearTimeInTheSelectionSize() throws Exception {
+        for (int i = 0; i < WARM_UP_PICKS; i++) {
+            pickOne(i).getArray();
+        }
+
+        long[] singleNanos = new long[BASELINE_PICKS];
+        for (int i = 0; i < BASELINE_PICKS; i++) {
+            PickerHarness.ResultPromise promise = pickOne(i);
+            promise.getArray();
+            singleNanos[i] = promise.awaitNanos();
+        }
+        long baseline = Math.max(MIN_BASELINE_NANOS, PickerHarness.median(singleNanos));
+
+        PickerHarness.ResultPromise promise = pickAll();
+        promise.getArray();
+        long nanos = promise.awaitNanos();
+
+        long bound = MAX_SLOWDOWN * count * baseline + MAX_PAUSE_NANOS;
+        assertTrue("Picking " + count + " items took " + toMillis(nanos) + " ms, single picks "
+                + toMillis(baseline) + " ms", nanos <= bound);
+    }
+
+    @Test
+    public void allocatesAtMostABudgetPerItem() throws Exception {
+        // the first pick loads classes and fills caches that are meant to stay
+        pickOne(0).getArray();
+
+        long before = PickerHarness.getAllocatedBytes();
+        List<Object> images = pickAll().getArray();
+        long allocated = PickerHarness.getAllocatedBytes() - before;
+
+        long base64Chars = 0;
+        for (Object image : images) {
+            String data = (String) BridgeShadows.valuesOf((WritableMap) image).get("data");
+            base64Chars += data != null ? data.length() : 0;
+        }
+
+        long bound = MAX_PICK_ALLOCATION_BYTES + count * MAX_ITEM_ALLOCATION_BYTES
+                + MAX_ALLOCATION_BYTES_PER_BASE64_CHAR * base64Chars;
+        assertTrue("Picking " + count + " items with " + base64Chars + " base64 chars allocated "
+                + allocated + " bytes", allocated <= bound);
+    }
+
+    private PickerHarness.ResultPromise pickAll() {
+        JavaOnlyMap options = newOptions();
+        options.putBoolean("multiple", true);
+        return harness.pick(options, PickerHarness.getMultipleResult(files));
+    }
+
+    /**
+     * Picks one of the files on its own, in the same mode as the selection.
+     */
+    private PickerHarness.ResultPromise pickOne(int index) {
+        JavaOnlyMap options = newOptions();
+        options.putBoolean("multiple", true);
+        return harness.pick(options, PickerHarness.getMultipleResult(
+                Collections.singletonList(files.get(index % count))));
+    }
+
+    private JavaOnlyMap newOptions() {
+        JavaOnlyMap options = new JavaOnlyMap();
+        options.putBoolean("includeBase64", includeBase64);
+        return options;
+    }
+
+    private static boolean isPng(int index) {
+        return index % 2 == 1;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
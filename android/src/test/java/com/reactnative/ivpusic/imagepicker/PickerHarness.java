@@ -0,0 +1,234 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.app.Activity;
+import android.content.ClipData;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.PromiseImpl;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.PermissionAwareActivity;
+import com.facebook.react.modules.core.PermissionListener;
+
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Drives a {@link PickerModule} the way the gallery would: the picker is
+ * opened, and its result is handed back through {@code onActivityResult}.
+ */
+final class PickerHarness {
+
+    static final String JPEG = "photo.jpg";
+    static final String PNG = "transparent.png";
+    static final String MP4 = "clip.mp4";
+
+    // a pick that hangs fails here rather than on the test runner's timeout
+    private static final long SETTLE_TIMEOUT_SECONDS = 120;
+
+    final ReactApplicationContext reactContext;
+    final PickerModule module;
+    final FakeActivity activity;
+
+    PickerHarness() {
+        reactContext = new ReactApplicationContext(RuntimeEnvironment.application);
+        module = new PickerModule(reactContext, 2);
+        activity = new FakeActivity();
+        reactContext.onHostResume(activity);
+    }
+
+    void destroy() {
+        module.onCatalystInstanceDestroy();
+    }
+
+    /**
+     * Opens the picker and answers it with {@code data}.
+     */
+    ResultPromise pick(ReadableMap options, Intent data) {
+        ResultPromise promise = new ResultPromise();
+        module.openPicker(options, promise.promise);
+        assertNotNull("Picker was not opened", activity.startedIntent);
+
+        promise.startedAt = System.nanoTime();
+        module.onActivityResult(activity, activity.startedRequestCode, Activity.RESULT_OK, data);
+        activity.startedIntent = null;
+        return promise;
+    }
+
+    static Intent getSingleResult(File file) {
+        return new Intent().setData(Uri.fromFile(file));
+    }
+
+    static Intent getMultipleResult(List<File> files) {
+        ClipData clipData = ClipData.newRawUri(null, Uri.fromFile(files.get(0)));
+        for (int i = 1; i < files.size(); i++) {
+            clipData.addItem(new ClipData.Item(Uri.fromFile(files.get(i))));
+        }
+
+        Intent data = new Intent();
+        data.setClipData(clipData);
+        return data;
+    }
+
+    /**
+     * Copies a fixture from the test resources to {@code target}.
+     */
+    static File copyFixture(String name, File target) throws IOException {
+        OutputStream out = new FileOutputStream(target);
+        try {
+            out.write(readFixture(name));
+        } finally {
+            out.close();
+        }
+
+        return target;
+    }
+
+    static byte[] readFixture(String name) throws IOException {
+        InputStream in = PickerHarness.class.getResourceAsStream("/fixtures/" + name);
+        assertNotNull("Missing fixture " + name, in);
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Bytes allocated so far by all live threads, which includes the module's
+     * workers. Unlike used heap, it doesn't depend on when the collector runs.
+     */
+    static long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue("Thread allocation counting is not supported by this JVM", threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            // -1 for threads that ended in between
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Grants every permission and records the picker it is asked to start.
+     * It is never attached, so nothing else of the activity may be used.
+     */
+    public static class FakeActivity extends Activity implements PermissionAwareActivity {
+        volatile Intent startedIntent;
+        volatile int startedRequestCode;
+
+        @Override
+        public int checkPermission(String permission, int pid, int uid) {
+            return PackageManager.PERMISSION_GRANTED;
+        }
+
+        @Override
+        public int checkSelfPermission(String permission) {
+            return PackageManager.PERMISSION_GRANTED;
+        }
+
+        @Override
+        public void requestPermissions(String[] permissions, int requestCode, PermissionListener listener) {
+            int[] grantResults = new int[permissions.length];
+            Arrays.fill(grantResults, PackageManager.PERMISSION_GRANTED);
+            listener.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        }
+
+        @Override
+        public void startActivityForResult(Intent intent, int requestCode) {
+            startedIntent = intent;
+            startedRequestCode = requestCode;
+        }
+    }
+
+    static class ResultPromise {
+        final CountDownLatch settled = new CountDownLatch(1);
+        final PromiseImpl promise;
+        volatile Object value;
+        volatile Object error;
+        volatile long startedAt = System.nanoTime();
+        volatile long settledAt;
+
+        ResultPromise() {
+            promise = new PromiseImpl(new Callback() {
+                @Override
+                public void invoke(Object... args) {
+                    value = args[0];
+                    settledAt = System.nanoTime();
+                    settled.countDown();
+                }
+            }, new Callback() {
+                @Override
+                public void invoke(Object... args) {
+                    error = args[0];
+                    settledAt = System.nanoTime();
+                    settled.countDown();
+                }
+            });
+        }
+
+        /**
+         * @return nanoseconds from the picker result to the settled promise
+         */
+        long awaitNanos() throws InterruptedException {
+            if (!settled.await(SETTLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                fail("Promise was not settled within " + SETTLE_TIMEOUT_SECONDS + " s");
+            }
+
+            return settledAt - startedAt;
+        }
+
+        Map<String, Object> getMap() throws InterruptedException {
+            awaitSettledWithValue();
+            return BridgeShadows.valuesOf((WritableMap) value);
+        }
+
+        List<Object> getArray() throws InterruptedException {
+            awaitSettledWithValue();
+            return BridgeShadows.valuesOf((WritableArray) value);
+        }
+
+        private void awaitSettledWithValue() throws InterruptedException {
+            awaitNanos();
+            if (error != null) {
+                fail("Promise was rejected: "
+                        + (error instanceof WritableMap ? BridgeShadows.valuesOf((WritableMap) error) : error));
+            }
+        }
+    }
+}
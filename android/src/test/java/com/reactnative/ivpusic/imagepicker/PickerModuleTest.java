@@ -0,0 +1,117 @@
+package com.reactnative.ivpusic.imagepicker;
+
+import android.webkit.MimeTypeMap;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.WritableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Picks the encoded fixtures in {@code src/test/resources/fixtures} one at a
+ * time and checks what the selection reports about them.
+ * <p>
+ * The platform decoders are replaced by {@link MediaShadows}, which read the
+ * sizes from the file headers; see {@link MultipleSelectionTest} for the
+ * time and allocation bounds of larger selections.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PickerModuleTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PickerHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new PickerHarness();
+    }
+
+    @After
+    public void tearDown() {
+        harness.destroy();
+    }
+
+    @Test
+    public void resolvesAJpegWithItsBase64Data() throws Exception {
+        File jpeg = PickerHarness.copyFixture(PickerHarness.JPEG, folder.newFile("photo.jpg"));
+        JavaOnlyMap options = new JavaOnlyMap();
+        options.putBoolean("includeBase64", true);
+
+        Map<String, Object> image = harness.pick(options, PickerHarness.getSingleResult(jpeg)).getMap();
+
+        assertEquals("file://" + jpeg.getAbsolutePath(), image.get("path"));
+        assertEquals(640, image.get("width"));
+        assertEquals(480, image.get("height"));
+        assertEquals("image/jpeg", image.get("mime"));
+        assertEquals((int) jpeg.length(), image.get("size"));
+        assertEquals(Base64Encoder.encodeToString(PickerHarness.readFixture(PickerHarness.JPEG)), image.get("data"));
+    }
+
+    @Test
+    public void resolvesAPngWithoutBase64Data() throws Exception {
+        File png = PickerHarness.copyFixture(PickerHarness.PNG, folder.newFile("transparent.png"));
+
+        Map<String, Object> image = harness.pick(new JavaOnlyMap(), PickerHarness.getSingleResult(png)).getMap();
+
+        assertEquals("file://" + png.getAbsolutePath(), image.get("path"));
+        assertEquals(320, image.get("width"));
+        assertEquals(240, image.get("height"));
+        assertEquals("image/png", image.get("mime"));
+        assertNull(image.get("data"));
+    }
+
+    @Test
+    public void resolvesAnMp4ThroughTheVideoPath() throws Exception {
+        Shadows.shadowOf(MimeTypeMap.getSingleton()).addExtensionMimeTypMapping("mp4", "video/mp4");
+        File mp4 = PickerHarness.copyFixture(PickerHarness.MP4, folder.newFile("clip.mp4"));
+        JavaOnlyMap options = new JavaOnlyMap();
+        options.putString("mediaType", "video");
+
+        Map<String, Object> video = harness.pick(options, PickerHarness.getSingleResult(mp4)).getMap();
+
+        assertEquals("file://" + mp4.getAbsolutePath(), video.get("path"));
+        assertEquals("video/mp4", video.get("mime"));
+        assertEquals(320, video.get("width"));
+        assertEquals(240, video.get("height"));
+        // 20 frames at 10 fps
+        assertEquals(2000.0, video.get("duration"));
+        assertEquals((int) mp4.length(), video.get("size"));
+        assertTrue((Double) video.get("bitrate") > 0);
+    }
+
+    @Test
+    public void reportsStagesNextToTheHeapInMetrics() throws Exception {
+        File jpeg = PickerHarness.copyFixture(PickerHarness.JPEG, folder.newFile("photo.jpg"));
+        harness.pick(new JavaOnlyMap(), PickerHarness.getSingleResult(jpeg)).getMap();
+
+        PickerHarness.ResultPromise promise = new PickerHarness.ResultPromise();
+        harness.module.getMetrics(promise.promise);
+        Map<String, Object> metrics = promise.getMap();
+
+        Map<String, Object> boundsDecode = BridgeShadows.valuesOf((WritableMap) metrics.get(PickerMetrics.STAGE_BOUNDS_DECODE));
+        assertEquals(1.0, boundsDecode.get("count"));
+        assertNotNull(metrics.get(PickerMetrics.STAGE_QUEUE));
+        assertNull(metrics.get("stages"));
+
+        Map<String, Object> heap = BridgeShadows.valuesOf((WritableMap) metrics.get("heap"));
+        double peakBytes = (Double) heap.get("peakBytes");
+        assertTrue(peakBytes > 0 && peakBytes <= (Double) heap.get("maxBytes"));
+    }
+}